@@ -0,0 +1,177 @@
+package com.shop.bench;
+
+import com.shop.model.Product;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.JsonUtil;
+import com.shop.util.RequestExecutor;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 非 JMH 的负载测试：模拟容器线程池（类似 Tomcat maxThreads），一半请求借连接执行一条耗时 dbMillis 的查询，
+// 另一半只序列化缓存中的商品列表（相当于命中目录缓存的商品接口）
+//   sync  - 控制器在容器线程上执行（async.mode=off）
+//   async - 容器线程把请求交给 RequestExecutor 的执行器后立即返回（async.mode=virtual）
+// Java 21 上 async 使用虚拟线程；Java 17 上用不限大小的线程池代替，输出中会注明
+// java -cp target/benchmarks.jar com.shop.bench.AsyncLoadTest [容器线程数] [并发客户端数] [查询毫秒数] [每轮秒数]
+public class AsyncLoadTest {
+    private static final List<Product> CACHED = BenchFixtures.products(20);
+
+    private static int dbMillis;
+
+    public static void main(String[] args) throws Exception {
+        int containerThreads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        dbMillis = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        BenchDatabase.start();
+        BenchDatabase.execute("CREATE ALIAS IF NOT EXISTS PAUSE FOR \"" + AsyncLoadTest.class.getName() + ".pause\"");
+        JsonUtil.warmUp();
+
+        System.out.printf("容器线程 %d，客户端 %d，连接池 8，查询 %d ms，每轮 %d 秒，Java %s%n",
+                containerThreads, clients, dbMillis, seconds, System.getProperty("java.version"));
+
+        run("sync", null, containerThreads, clients, 1);
+        run("sync", null, containerThreads, clients, seconds);
+
+        ExecutorService async;
+        String kind;
+        try {
+            async = RequestExecutor.newVirtualThreadExecutor();
+            kind = "async(virtual)";
+        } catch (IllegalStateException e) {
+            async = Executors.newCachedThreadPool();
+            kind = "async(cached pool, Java 17 代替虚拟线程)";
+        }
+        try {
+            run(kind, async, containerThreads, clients, 1);
+            run(kind, async, containerThreads, clients, seconds);
+        } finally {
+            async.shutdownNow();
+            DatabaseUtil.close();
+        }
+    }
+
+    // 由 H2 在 SQL 中调用，模拟查询耗时
+    public static int pause(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+
+    // 每个客户端交替发出查询请求和缓存请求，收到响应后立即发下一个
+    private static void run(String name, ExecutorService async, int containerThreads, int clients, int seconds)
+            throws InterruptedException {
+        ExecutorService container = Executors.newFixedThreadPool(containerThreads);
+        List<long[]> dbLatencies = new ArrayList<>();
+        List<long[]> cacheLatencies = new ArrayList<>();
+        long[] dbCounts = new long[clients];
+        long[] cacheCounts = new long[clients];
+        long[] errors = new long[clients];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(clients);
+        Thread[] workers = new Thread[clients];
+
+        for (int c = 0; c < clients; c++) {
+            int index = c;
+            long[] db = new long[1 << 16];
+            long[] cache = new long[1 << 16];
+            dbLatencies.add(db);
+            cacheLatencies.add(cache);
+            workers[c] = new Thread(() -> {
+                try {
+                    boolean query = index % 2 == 0;
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        try {
+                            submit(container, async, query).get();
+                        } catch (Exception e) {
+                            errors[index]++;
+                            continue;
+                        }
+                        long elapsed = System.nanoTime() - begin;
+                        if (query && dbCounts[index] < db.length) {
+                            db[(int) dbCounts[index]++] = elapsed;
+                        } else if (!query && cacheCounts[index] < cache.length) {
+                            cache[(int) cacheCounts[index]++] = elapsed;
+                        }
+                        query = !query;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            workers[c].start();
+        }
+        done.await();
+        container.shutdownNow();
+
+        if (seconds > 1) {
+            report(name, "db", dbLatencies, dbCounts, seconds);
+            report(name, "cache", cacheLatencies, cacheCounts, seconds);
+            long failed = Arrays.stream(errors).sum();
+            if (failed > 0) {
+                System.out.printf("%-40s 失败 %d%n", name, failed);
+            }
+        }
+    }
+
+    private static CompletableFuture<Void> submit(ExecutorService container, ExecutorService async, boolean query) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Runnable handler = () -> {
+            try {
+                if (query) {
+                    query();
+                } else {
+                    JsonUtil.toJson(CACHED);
+                }
+                future.complete(null);
+            } catch (SQLException | IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        container.execute(async == null ? handler : () -> async.execute(handler));
+        return future;
+    }
+
+    private static void query() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT PAUSE(?)")) {
+            stmt.setInt(1, dbMillis);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+            }
+        }
+    }
+
+    private static void report(String name, String type, List<long[]> latencies, long[] counts, int seconds) {
+        int total = (int) Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < counts.length; c++) {
+            System.arraycopy(latencies.get(c), 0, all, offset, (int) counts[c]);
+            offset += (int) counts[c];
+        }
+        Arrays.sort(all);
+        System.out.printf("%-40s %-6s %8.0f req/s  p50 %7.2f ms  p99 %7.2f ms%n", name, type,
+                total / (double) seconds, percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.shop.bench;
+
+import com.shop.util.DatabaseUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+// 基准测试用的内嵌数据库：H2 MySQL 兼容模式，表结构与 sql.sql 一致
+public class BenchDatabase {
+    private static boolean started;
+
+    public static synchronized void start() throws SQLException {
+        if (started) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("jdbc.driver", CountingDriver.class.getName());
+        props.setProperty("jdbc.url", "jdbc:counting:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        props.setProperty("jdbc.username", "sa");
+        props.setProperty("jdbc.password", "");
+        props.setProperty("jdbc.minIdle", "2");
+        props.setProperty("jdbc.maxActive", "8");
+        DatabaseUtil.start(props);
+
+        execute(readResource("/bench/schema.sql"));
+        started = true;
+    }
+
+    public static void execute(String script) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String sql : script.split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    private static String readResource(String path) {
+        try (InputStream in = BenchDatabase.class.getResourceAsStream(path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("读取资源失败: " + path, e);
+        }
+    }
+}
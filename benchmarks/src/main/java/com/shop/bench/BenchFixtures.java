@@ -0,0 +1,138 @@
+package com.shop.bench;
+
+import com.shop.model.Category;
+import com.shop.model.Order;
+import com.shop.model.OrderItem;
+import com.shop.model.Product;
+import com.shop.util.DatabaseUtil;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// 基准测试数据构造
+public class BenchFixtures {
+
+    public static void insertOrders(long userId, int orderCount, int itemsPerOrder) throws SQLException {
+        String orderSql = "INSERT INTO orders (order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address) " +
+                "VALUES (?, ?, ?, 'pending', '张三', '13800000000', '测试地址')";
+        String itemSql = "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement orderStmt = conn.prepareStatement(orderSql, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement itemStmt = conn.prepareStatement(itemSql)) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < orderCount; i++) {
+                orderStmt.setString(1, userId + "-" + i);
+                orderStmt.setLong(2, userId);
+                orderStmt.setBigDecimal(3, new BigDecimal("99.90"));
+                orderStmt.executeUpdate();
+                long orderId;
+                try (ResultSet rs = orderStmt.getGeneratedKeys()) {
+                    rs.next();
+                    orderId = rs.getLong(1);
+                }
+                for (int j = 0; j < itemsPerOrder; j++) {
+                    itemStmt.setLong(1, orderId);
+                    itemStmt.setLong(2, j + 1);
+                    itemStmt.setInt(3, 1);
+                    itemStmt.setBigDecimal(4, new BigDecimal("33.30"));
+                    itemStmt.addBatch();
+                }
+            }
+            itemStmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "联想", "海尔", "美的", "索尼", "戴尔"};
+    private static final String[] ITEMS = {"手机", "笔记本电脑", "平板", "耳机", "电视", "冰箱", "洗衣机", "显示器", "键盘", "充电器"};
+
+    // 插入 count 个中文商品，分布在 categories 个分类中，名称和描述由品牌与品类组合而成
+    public static void insertProducts(int count, int categories) throws SQLException {
+        String sql = "INSERT INTO products (category_id, name, description, price, stock, image_url, status, created_at) " +
+                "VALUES (?, ?, ?, ?, 100, ?, ?, ?)";
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < count; i++) {
+                String brand = BRANDS[i % BRANDS.length];
+                String item = ITEMS[(i / BRANDS.length) % ITEMS.length];
+                stmt.setLong(1, i % categories + 1);
+                stmt.setString(2, brand + item + " " + (i % 7 == 0 ? "Pro" : "Lite") + " " + i);
+                stmt.setString(3, "这是" + brand + "出品的" + item + "，适合学生和办公使用。型号 X" + (i % 50)
+                        + "，支持快充与蓝牙连接。Product " + i + " description for search benchmarks.");
+                stmt.setBigDecimal(4, new BigDecimal(99 + (i * 37) % 9000));
+                stmt.setString(5, "/images/products/" + i + ".jpg");
+                stmt.setInt(6, i % 10 == 0 ? 0 : 1);
+                stmt.setTimestamp(7, new Timestamp(1736300000000L + i * 60000L));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // 与商品详情接口返回内容相当的商品对象
+    public static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(2L);
+        product.setName("测试商品 " + id);
+        product.setDescription("这是一段用于基准测试的商品描述，长度与真实商品描述相当。Product description for benchmarks.");
+        product.setPrice(new BigDecimal("7999.00"));
+        product.setStock(100);
+        product.setImageUrl("/images/products/" + id + ".jpg");
+        product.setStatus(1);
+        product.setCreatedAt(new Timestamp(1736300000000L + id * 1000));
+        product.setUpdatedAt(new Timestamp(1736300000000L + id * 1000));
+        Category category = new Category();
+        category.setId(2L);
+        category.setName("电器");
+        category.setDescription("分类描述");
+        product.setCategory(category);
+        return product;
+    }
+
+    public static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    public static Order order(long id, int itemCount) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderNo("2025010819451446800" + id);
+        order.setUserId(3L);
+        order.setTotalAmount(new BigDecimal("15998.00"));
+        order.setStatus("pending");
+        order.setReceiverName("张三");
+        order.setReceiverPhone("13800000000");
+        order.setReceiverAddress("测试地址");
+        order.setCreatedAt(new Timestamp(1736300000000L));
+        order.setUpdatedAt(new Timestamp(1736300000000L));
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 1; i <= itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(id * 100 + i);
+            item.setOrderId(id);
+            item.setProductId((long) i);
+            item.setPrice(new BigDecimal("7999.00"));
+            item.setQuantity(2);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+}
@@ -0,0 +1,67 @@
+package com.shop.bench;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+
+// 容器外的 HttpServletResponse 桩：响应体写入 sink，其余方法返回默认值
+// 与容器一致，writer / 输出流在一次响应内复用，close 只做 flush
+public class BenchResponse {
+
+    public static HttpServletResponse create(ByteArrayOutputStream sink) {
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                sink.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                sink.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                flush();
+            }
+        };
+
+        return (HttpServletResponse) Proxy.newProxyInstance(
+                BenchResponse.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return out;
+                        case "getWriter":
+                            return writer;
+                        case "getCharacterEncoding":
+                            return "UTF-8";
+                        case "isCommitted":
+                        case "containsHeader":
+                            return false;
+                        case "getStatus":
+                        case "getBufferSize":
+                            return 200;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,121 @@
+package com.shop.bench;
+
+import com.shop.util.DatabaseUtil;
+import com.shop.util.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 热点查询在执行 SchemaMigrator 迁移前后的执行计划对比（非 JMH）
+// 在 H2 上执行 EXPLAIN ANALYZE，打印使用的索引和扫描行数（scanCount）
+// java -cp target/benchmarks.jar com.shop.bench.ExplainReport [商品数] [用户数] [每用户订单数]
+public class ExplainReport {
+
+    // 与 DAO 中的语句一致，参数取中间值
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("用户订单列表 OrderDao.findByUserId",
+                "SELECT * FROM orders WHERE user_id = 50 ORDER BY created_at DESC, id DESC");
+        QUERIES.put("用户订单总数 OrderDao.countByUserId",
+                "SELECT COUNT(*) FROM orders WHERE user_id = 50");
+        QUERIES.put("后台按状态筛选订单 OrderDao.findAll",
+                "SELECT * FROM orders WHERE 1=1 AND status = 'paid' ORDER BY created_at DESC, id DESC LIMIT 0, 20");
+        QUERIES.put("按订单号查询 OrderDao.findByOrderNo",
+                "SELECT * FROM orders WHERE order_no = '50-7'");
+        QUERIES.put("分类在售商品游标分页 ProductDao.queryByCursor",
+                "SELECT p.* FROM products p WHERE 1=1 AND p.category_id = 3 AND p.status = 1 " +
+                        "ORDER BY p.created_at DESC, p.id DESC LIMIT 21");
+        QUERIES.put("分类商品总数 ProductDao.queryCount",
+                "SELECT COUNT(*) FROM products p WHERE 1=1 AND p.category_id = 3");
+        QUERIES.put("购物车已有条目 CartItemDao.findByProductId",
+                "SELECT ci.* FROM cart_items ci WHERE ci.product_id = 7 AND ci.user_id = 50");
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int ordersPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        BenchDatabase.start();
+        BenchFixtures.insertProducts(products, 8);
+        for (long userId = 1; userId <= users; userId++) {
+            BenchFixtures.insertOrders(userId, ordersPerUser, 1);
+        }
+        insertCartItems(users, 20);
+        BenchDatabase.execute("UPDATE orders SET status = 'paid' WHERE MOD(id, 4) = 0");
+
+        List<String[]> before = explainAll();
+        List<Integer> migrated = SchemaMigrator.migrate();
+        List<String[]> after = explainAll();
+
+        System.out.println("商品 " + products + "，订单 " + users * ordersPerUser + "，购物车条目 " + users * 20
+                + "，执行迁移版本 " + migrated);
+        int i = 0;
+        for (String name : QUERIES.keySet()) {
+            System.out.println();
+            System.out.println("== " + name);
+            System.out.println("  迁移前: " + before.get(i)[0] + "，scanCount=" + before.get(i)[1]);
+            System.out.println("  迁移后: " + after.get(i)[0] + "，scanCount=" + after.get(i)[1]);
+            i++;
+        }
+        System.out.println();
+        System.out.println("注：H2 只有在 ORDER BY 包含等值条件列时才按索引顺序读取，上面的 ORDER BY 查询仍会排序；"
+                + "MySQL 上同样的索引可以省去 filesort，LIMIT 查询只读取一页的行");
+    }
+
+    private static void insertCartItems(int users, int perUser) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO cart_items (user_id, product_id, quantity) VALUES ");
+        for (int userId = 1; userId <= users; userId++) {
+            for (int productId = 1; productId <= perUser; productId++) {
+                sql.append(userId == 1 && productId == 1 ? "" : ", ")
+                        .append('(').append(userId).append(", ").append(productId).append(", 1)");
+            }
+        }
+        BenchDatabase.execute(sql.toString());
+    }
+
+    // 每条查询返回 {索引, 扫描行数}
+    private static List<String[]> explainAll() throws SQLException {
+        List<String[]> plans = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+            for (String sql : QUERIES.values()) {
+                try (ResultSet rs = stmt.executeQuery("EXPLAIN ANALYZE " + sql)) {
+                    rs.next();
+                    plans.add(summarize(rs.getString(1)));
+                }
+            }
+        }
+        return plans;
+    }
+
+    // H2 在表名后以注释给出访问方式，如 /* public.idx_orders_user_created: user_id = 50 */ /* scanCount: 51 */
+    private static String[] summarize(String plan) {
+        String access = "";
+        long scanned = 0;
+        int from = 0;
+        int start;
+        while ((start = plan.indexOf("/*", from)) >= 0) {
+            int end = plan.indexOf("*/", start);
+            String comment = plan.substring(start + 2, end).trim();
+            if (comment.startsWith("scanCount:")) {
+                scanned += Long.parseLong(comment.substring("scanCount:".length()).trim());
+            } else if (access.isEmpty() && comment.startsWith("public.")) {
+                access = comment.replaceAll("\\s+", " ");
+            }
+            from = end + 2;
+        }
+        if (plan.contains("index sorted")) {
+            access += "（按索引顺序读取，无需排序）";
+        }
+        return new String[]{access, String.valueOf(scanned)};
+    }
+}
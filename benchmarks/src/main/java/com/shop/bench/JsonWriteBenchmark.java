@@ -0,0 +1,93 @@
+package com.shop.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.model.Order;
+import com.shop.model.PageResult;
+import com.shop.model.Product;
+import com.shop.model.Result;
+import com.shop.util.JsonUtil;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// JsonUtil.writeJson 序列化常见响应到 HttpServletResponse：
+//   product - Result<Product>，商品详情
+//   page    - Result<PageResult<Product>>，20 条商品的列表页
+//   orders  - OrderController 风格的 HashMap 包装，10 个订单各 3 个订单项
+// writeJsonPlainMapper 用未注册任何模块的默认 ObjectMapper 写同样的数据，作为对照
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonWriteBenchmark {
+
+    @Param({"product", "page", "orders"})
+    public String payload;
+
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(64 * 1024);
+    private final ObjectMapper plainMapper = new ObjectMapper();
+    private HttpServletResponse response;
+    private Object data;
+
+    @Setup
+    public void setUp() {
+        response = BenchResponse.create(sink);
+        switch (payload) {
+            case "product":
+                data = Result.success(BenchFixtures.product(1));
+                break;
+            case "page":
+                List<Product> products = BenchFixtures.products(20);
+                data = Result.success(new PageResult<>(products, 200, 1, 20));
+                break;
+            default:
+                List<Order> orders = new ArrayList<>();
+                for (int i = 1; i <= 10; i++) {
+                    orders.add(BenchFixtures.order(i, 3));
+                }
+                Map<String, Object> list = new HashMap<>();
+                list.put("total", orders.size());
+                list.put("list", orders);
+                Map<String, Object> result = new HashMap<>();
+                result.put("code", 200);
+                result.put("message", "获取订单列表成功");
+                result.put("data", list);
+                data = result;
+        }
+    }
+
+    @Benchmark
+    public int writeJson() throws IOException {
+        sink.reset();
+        JsonUtil.writeJson(response, data);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int writeJsonPlainMapper() throws IOException {
+        sink.reset();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        plainMapper.writeValue(response.getOutputStream(), data);
+        return sink.size();
+    }
+}
@@ -0,0 +1,44 @@
+package com.shop.bench;
+
+import com.shop.model.User;
+import com.shop.util.JwtUtil;
+import com.shop.util.TokenCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// token 校验：AuthFilter 对每个需要登录的请求执行一次
+// verifyToken 每次完整解析并校验签名（解析器已预先构建），cachedVerify 走已验证 token 缓存
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+    private String token;
+
+    @Setup
+    public void setUp() {
+        token = JwtUtil.generateToken(3L, "benchmark", "user");
+    }
+
+    @Benchmark
+    public User verifyToken() {
+        return JwtUtil.verifyToken(token);
+    }
+
+    @Benchmark
+    public User cachedVerify() {
+        return TokenCache.verify(token);
+    }
+}
@@ -0,0 +1,59 @@
+package com.shop.bench;
+
+import com.shop.util.OrderNoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 订单号生成吞吐量：
+//   legacy    - 旧实现，每次新建 SimpleDateFormat 和 Random，秒级时间 + 3 位随机数
+//   generator - OrderNoGenerator，CAS 推进毫秒 + 序号，同一秒内复用格式化结果
+// 分别在 1 个和 8 个线程下运行，观察 CAS 争用下的扩展性
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderNoBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public String legacy() {
+        return legacyOrderNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String legacyContended() {
+        return legacyOrderNo();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generator() {
+        return OrderNoGenerator.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generatorContended() {
+        return OrderNoGenerator.next();
+    }
+
+    static String legacyOrderNo() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
+        String timestamp = sdf.format(new Date());
+        String random = String.format("%03d", new Random().nextInt(1000));
+        return timestamp + random;
+    }
+}
@@ -0,0 +1,75 @@
+package com.shop.bench;
+
+import com.shop.util.OrderNoGenerator;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+// 订单号唯一性压力测试：多线程同时生成，统计重复数和格式错误数，任一不为 0 时以非 0 状态退出
+// java -cp target/benchmarks.jar com.shop.bench.OrderNoStress [线程数] [每线程数量]
+public class OrderNoStress {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        long duplicates = run("generator", threads, perThread, OrderNoGenerator::next, true);
+
+        // 旧实现作为对照，只报告重复数
+        run("legacy", threads, Math.min(perThread, 20000), OrderNoBenchmark::legacyOrderNo, false);
+
+        if (duplicates > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static long run(String name, int threads, int perThread, Supplier<String> supplier, boolean checkFormat)
+            throws InterruptedException {
+        Set<String> seen = ConcurrentHashMap.newKeySet(threads * perThread);
+        long[] duplicates = new long[threads];
+        long[] malformed = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    String orderNo = supplier.get();
+                    if (!seen.add(orderNo)) {
+                        duplicates[index]++;
+                    }
+                    if (checkFormat && (orderNo.length() != 22 || !orderNo.chars().allMatch(Character::isDigit))) {
+                        malformed[index]++;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+
+        long totalDuplicates = 0;
+        long totalMalformed = 0;
+        for (int t = 0; t < threads; t++) {
+            totalDuplicates += duplicates[t];
+            totalMalformed += malformed[t];
+        }
+        long total = (long) threads * perThread;
+        System.out.printf("[%s] threads=%d total=%d duplicates=%d malformed=%d elapsed=%dms (%d/ms)%n",
+                name, threads, total, totalDuplicates, totalMalformed, elapsedMillis, total / elapsedMillis);
+        return totalDuplicates + totalMalformed;
+    }
+}
@@ -0,0 +1,96 @@
+package com.shop.bench;
+
+import com.shop.dao.OrderDao;
+import com.shop.dao.OrderItemDao;
+import com.shop.model.Order;
+import com.shop.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 对比用户订单列表的两种加载方式：
+//   perOrderItems - 旧实现，每个订单单独查询订单项（1 + N 次往返）
+//   batchedItems  - OrderDao.findByUserId，IN 查询批量加载（1 + ceil(N/500) 次往返）
+// 结束时打印每次操作的数据库往返次数
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderQueryBenchmark {
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Param({"10", "100", "1000"})
+    public int orderCount;
+
+    private final OrderDao orderDao = new OrderDao();
+    private final OrderItemDao orderItemDao = new OrderItemDao();
+    private long userId;
+    private long operations;
+    private long roundTripsAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.start();
+        userId = orderCount;
+        BenchDatabase.execute("DELETE FROM order_items; DELETE FROM orders");
+        BenchFixtures.insertOrders(userId, orderCount, ITEMS_PER_ORDER);
+        operations = 0;
+        roundTripsAtStart = CountingDriver.roundTrips();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        if (operations > 0) {
+            double perOp = (double) (CountingDriver.roundTrips() - roundTripsAtStart) / operations;
+            System.out.printf("%n[orders=%d] db round-trips/op: %.1f%n", orderCount, perOp);
+        }
+    }
+
+    @Benchmark
+    public List<Order> batchedItems() throws SQLException {
+        operations++;
+        return orderDao.findByUserId(userId);
+    }
+
+    @Benchmark
+    public List<Order> perOrderItems() throws SQLException {
+        operations++;
+        List<Order> orders = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC")) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Order order = new Order();
+                    order.setId(rs.getLong("id"));
+                    order.setOrderNo(rs.getString("order_no"));
+                    orders.add(order);
+                }
+            }
+        }
+        for (Order order : orders) {
+            order.setItems(orderItemDao.findByOrderId(order.getId()));
+        }
+        return orders;
+    }
+}
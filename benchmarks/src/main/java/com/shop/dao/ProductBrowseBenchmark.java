@@ -0,0 +1,68 @@
+package com.shop.dao;
+
+import com.shop.bench.BenchDatabase;
+import com.shop.bench.BenchFixtures;
+import com.shop.model.Product;
+import com.shop.util.CatalogCache;
+import com.shop.util.CountCache;
+import com.shop.util.SearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 无关键词浏览在售商品的第 10 页（20 条）及总数：
+//   cacheSort - 旧实现，复制目录缓存中的分类列表、整体排序后截取一页，再过滤下架商品
+//   sorted    - ProductDao.findOnSale + countOnSale，在索引的有序数组中按下标取一页
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductBrowseBenchmark {
+
+    @Param({"5000", "50000"})
+    public int productCount;
+
+    @Param({"price_asc", "create_time_desc"})
+    public String orderBy;
+
+    private final ProductDao productDao = new ProductDao();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.start();
+        BenchDatabase.execute("DELETE FROM products");
+        BenchFixtures.insertProducts(productCount, 8);
+        CatalogCache.clear();
+        CountCache.invalidate("products");
+        SearchIndex.clear();
+        productDao.warmCache();
+    }
+
+    @Benchmark
+    public int cacheSort() throws SQLException {
+        List<Product> page = productDao.findByPage(null, null, 180, 20, orderBy);
+        page.removeIf(product -> product.getStatus() != 1);
+        return page.size() + productDao.count(null, null);
+    }
+
+    @Benchmark
+    public int sorted() throws SQLException {
+        List<Product> page = productDao.findOnSale(null, 180, 20, orderBy);
+        return page.size() + productDao.countOnSale(null);
+    }
+}
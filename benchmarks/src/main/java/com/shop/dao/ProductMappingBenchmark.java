@@ -0,0 +1,67 @@
+package com.shop.dao;
+
+import com.shop.bench.BenchFixtures;
+import com.shop.model.Product;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ProductDao.mapResultSetToProduct：把一页 20 行的商品查询结果映射为对象
+// 结果集在内存中构造（列与 products LEFT JOIN categories 查询一致），只测映射本身，不含查询
+// 放在 com.shop.dao 包中以调用包级可见的方法
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMappingBenchmark {
+    private static final int ROWS = 20;
+
+    private final ProductDao productDao = new ProductDao();
+    private SimpleResultSet rs;
+
+    @Setup
+    public void setUp() {
+        rs = new SimpleResultSet();
+        rs.setAutoClose(false);
+        rs.addColumn("id", Types.BIGINT, 20, 0);
+        rs.addColumn("category_id", Types.BIGINT, 20, 0);
+        rs.addColumn("name", Types.VARCHAR, 100, 0);
+        rs.addColumn("description", Types.VARCHAR, 65535, 0);
+        rs.addColumn("price", Types.DECIMAL, 10, 2);
+        rs.addColumn("stock", Types.INTEGER, 11, 0);
+        rs.addColumn("image_url", Types.VARCHAR, 255, 0);
+        rs.addColumn("status", Types.TINYINT, 4, 0);
+        rs.addColumn("created_at", Types.TIMESTAMP, 0, 0);
+        rs.addColumn("updated_at", Types.TIMESTAMP, 0, 0);
+        for (Product p : BenchFixtures.products(ROWS)) {
+            rs.addRow(p.getId(), p.getCategoryId(), p.getName(), p.getDescription(), p.getPrice(),
+                    p.getStock(), p.getImageUrl(), p.getStatus(), p.getCreatedAt(), p.getUpdatedAt());
+        }
+    }
+
+    @Benchmark
+    public List<Product> mapPage() throws SQLException {
+        rs.beforeFirst();
+        List<Product> products = new ArrayList<>(ROWS);
+        while (rs.next()) {
+            products.add(productDao.mapResultSetToProduct(rs));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,104 @@
+package com.shop.dao;
+
+import com.shop.bench.BenchDatabase;
+import com.shop.bench.BenchFixtures;
+import com.shop.model.Product;
+import com.shop.util.CatalogCache;
+import com.shop.util.CountCache;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.SearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 关键词搜索一页商品（20 条）及总数：
+//   like  - 旧实现，LIKE '%kw%' 查询一页再 COUNT(*)，两次全表扫描
+//   index - ProductDao.findByPage + count，走全文索引，只按ID加载当前页
+//   facets - ProductDao.findFaceted，同一次调用额外算出 8 个分类、5 个价格区间的数量
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param({"5000"})
+    public int productCount;
+
+    @Param({"手机", "小米 pro"})
+    public String keyword;
+
+    private final ProductDao productDao = new ProductDao();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.start();
+        BenchDatabase.execute("DELETE FROM products");
+        BenchFixtures.insertProducts(productCount, 8);
+        CatalogCache.clear();
+        CountCache.invalidate("products");
+        SearchIndex.clear();
+        productDao.warmCache();
+    }
+
+    @Benchmark
+    public int index() throws SQLException {
+        List<Product> page = productDao.findByPage(keyword, null, 0, 20, null);
+        return page.size() + productDao.count(keyword, null);
+    }
+
+    @Benchmark
+    public int facets() throws SQLException {
+        return productDao.findFaceted(keyword, null, 1, null, 1, 20, null).getTotal();
+    }
+
+    @Benchmark
+    public int like() throws SQLException {
+        // 旧实现只支持整个关键词作为一个子串
+        String like = "%" + keyword.trim() + "%";
+        String sql = "SELECT p.*, c.name as category_name, c.description as category_description " +
+                "FROM products p LEFT JOIN categories c ON p.category_id = c.id " +
+                "WHERE (p.name LIKE ? OR p.description LIKE ?) ORDER BY p.created_at DESC, p.id DESC LIMIT 20 OFFSET 0";
+        List<Product> page = new ArrayList<>();
+        int total = 0;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, like);
+                stmt.setString(2, like);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(productDao.mapResultSetToProduct(rs));
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM products p WHERE (p.name LIKE ? OR p.description LIKE ?)")) {
+                stmt.setString(1, like);
+                stmt.setString(2, like);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    total = rs.getInt(1);
+                }
+            }
+        }
+        return page.size() + total;
+    }
+}
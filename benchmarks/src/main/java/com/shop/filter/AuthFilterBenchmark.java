@@ -0,0 +1,35 @@
+package com.shop.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// AuthFilter.isPublicPath：每个请求都会执行，参数覆盖静态资源、公开接口和需要登录的接口
+// 放在 com.shop.filter 包中以调用包级可见的方法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    @Param({"/css/style.css", "/api/auth/login", "/api/products/12", "/api/orders/3/cancel"})
+    public String path;
+
+    private final AuthFilter filter = new AuthFilter();
+
+    @Benchmark
+    public boolean isPublicPath() {
+        return filter.isPublicPath(path);
+    }
+}
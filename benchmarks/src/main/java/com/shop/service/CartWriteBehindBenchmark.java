@@ -0,0 +1,112 @@
+package com.shop.service;
+
+import com.shop.bench.BenchDatabase;
+import com.shop.bench.BenchFixtures;
+import com.shop.dao.CartItemDao;
+import com.shop.dao.ProductDao;
+import com.shop.model.CartItem;
+import com.shop.model.Product;
+import com.shop.util.CatalogCache;
+import com.shop.util.SchemaMigrator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 加入购物车（已有则数量加一）后查看购物车，200 个用户、40 个商品：
+//   direct      - 旧实现，先查已有条目再 update 或 insert，每次读写都访问 cart_items
+//   upsert      - CartItemDao.add，锁定商品行后一条带库存检查的 INSERT ... ON DUPLICATE KEY UPDATE（关闭写回缓存时的实现）
+//   writeBehind - CartStore.add，在内存中读写，后台每 500ms 合并写回
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartWriteBehindBenchmark {
+    private static final int USERS = 200;
+    private static final int PRODUCTS = 40;
+
+    private final CartItemDao cartItemDao = new CartItemDao();
+    private final ProductDao productDao = new ProductDao();
+    private final List<Product> products = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.start();
+        BenchDatabase.execute("DELETE FROM cart_items");
+        BenchDatabase.execute("DELETE FROM products");
+        BenchFixtures.insertProducts(PRODUCTS, 4);
+        // 库存足够大，测量期间不会触发库存上限
+        BenchDatabase.execute("UPDATE products SET stock = 100000000");
+        SchemaMigrator.migrate();
+        CatalogCache.clear();
+        productDao.warmCache();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            products.add(productDao.findById(id));
+        }
+        // 写回缓存默认关闭
+        System.setProperty("cart.writeBehind", "true");
+        CartStore.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CartStore.stop();
+    }
+
+    @Benchmark
+    public int direct() throws SQLException {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        long productId = ThreadLocalRandom.current().nextInt(PRODUCTS) + 1;
+        CartItem item = cartItemDao.findByProductId(productId, userId);
+        if (item != null) {
+            item.setQuantity(item.getQuantity() + 1);
+            cartItemDao.update(item);
+        } else {
+            cartItemDao.insert(newItem(userId, productId));
+        }
+        List<CartItem> items = cartItemDao.findByUserId(userId);
+        return items.size();
+    }
+
+    @Benchmark
+    public int upsert() throws SQLException {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        long productId = ThreadLocalRandom.current().nextInt(PRODUCTS) + 1;
+        cartItemDao.add(userId, productId, 1);
+        List<CartItem> items = cartItemDao.findByUserId(userId);
+        return items.size();
+    }
+
+    @Benchmark
+    public int writeBehind() throws SQLException {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        Product product = products.get(ThreadLocalRandom.current().nextInt(PRODUCTS));
+        CartStore.add(userId, product, 1);
+        List<CartItem> items = CartStore.findByUserId(userId);
+        return items.size();
+    }
+
+    private static CartItem newItem(long userId, long productId) {
+        CartItem item = new CartItem();
+        item.setUserId(userId);
+        item.setProductId(productId);
+        item.setQuantity(1);
+        return item;
+    }
+}
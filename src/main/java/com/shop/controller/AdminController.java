@@ -8,14 +8,13 @@ import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
-@WebServlet("/api/admin/create")
+@WebServlet(urlPatterns = "/api/admin/create", asyncSupported = true)
 @MultipartConfig
-public class AdminController extends HttpServlet {
+public class AdminController extends AsyncServlet {
     private UserDao userDao = new UserDao();
 
     @Override
@@ -0,0 +1,21 @@
+package com.shop.controller;
+
+import com.shop.util.RequestExecutor;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// 控制器基类：开启异步模式（async.mode）时 doGet/doPost 等在 RequestExecutor 的线程上执行，容器线程立即返回
+// 子类的 @WebServlet 需要 asyncSupported = true；未开启时与 HttpServlet 完全相同
+public abstract class AsyncServlet extends HttpServlet {
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!RequestExecutor.dispatch(request, response, () -> super.service(request, response))) {
+            super.service(request, response);
+        }
+    }
+}
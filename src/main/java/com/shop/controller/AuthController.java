@@ -9,16 +9,15 @@ import com.shop.util.JwtUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-@WebServlet("/api/auth/login")
+@WebServlet(urlPatterns = "/api/auth/login", asyncSupported = true)
 @MultipartConfig
-public class AuthController extends HttpServlet {
+public class AuthController extends AsyncServlet {
     private UserDao userDao = new UserDao();
 
     @Override
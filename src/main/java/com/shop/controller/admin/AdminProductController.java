@@ -1,6 +1,6 @@
 package com.shop.controller.admin;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.ProductDao;
 import com.shop.model.PageResult;
 import com.shop.model.Product;
@@ -10,7 +10,6 @@ import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Part;
@@ -24,15 +23,14 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
 
-@WebServlet("/api/admin/products/*")
+@WebServlet(urlPatterns = "/api/admin/products/*", asyncSupported = true)
 @MultipartConfig(
     fileSizeThreshold = 1024 * 1024,      // 1 MB
     maxFileSize = 1024 * 1024 * 10,       // 10 MB
     maxRequestSize = 1024 * 1024 * 100    // 100 MB
 )
-public class AdminProductController extends HttpServlet {
+public class AdminProductController extends AsyncServlet {
     private final ProductDao productDao = new ProductDao();
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private static final String UPLOAD_DIR = "uploads";
 
     @Override
@@ -1,20 +1,20 @@
 package com.shop.controller.admin;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.CategoryDao;
 import com.shop.model.Category;
 import com.shop.model.Result;
 import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-@WebServlet("/api/admin/categories/*")
-public class CategoryController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/admin/categories/*", asyncSupported = true)
+public class CategoryController extends AsyncServlet {
     private CategoryDao categoryDao = new CategoryDao();
     
     @Override
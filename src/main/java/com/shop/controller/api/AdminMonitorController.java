@@ -0,0 +1,119 @@
+package com.shop.controller.api;
+
+import com.shop.controller.AsyncServlet;
+import com.shop.filter.CompressionFilter;
+import com.shop.model.Result;
+import com.shop.model.User;
+import com.shop.service.CartStore;
+import com.shop.service.FlashSaleInventory;
+import com.shop.util.CatalogCache;
+import com.shop.util.CategoryCache;
+import com.shop.util.CountCache;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.JsonUtil;
+import com.shop.util.RequestExecutor;
+import com.shop.util.RequestLane;
+import com.shop.util.SchemaMigrator;
+import com.shop.util.SearchIndex;
+import com.shop.util.TokenCache;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLException;
+
+@WebServlet(urlPatterns = "/api/admin/monitor/*", asyncSupported = true)
+public class AdminMonitorController extends AsyncServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        // 检查管理员权限
+        User user = (User) request.getAttribute("user");
+        if (!"admin".equals(user.getRole())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "需要管理员权限");
+            return;
+        }
+
+        String pathInfo = request.getPathInfo();
+
+        // 连接池状态
+        if ("/pool".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(DatabaseUtil.getPoolStats()));
+            return;
+        }
+
+        // 列表总数缓存状态
+        if ("/counts".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(CountCache.getStats()));
+            return;
+        }
+
+        // 商品目录缓存状态
+        if ("/catalog".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(CatalogCache.getStats()));
+            return;
+        }
+
+        // 分类快照状态
+        if ("/categories".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(CategoryCache.getStats()));
+            return;
+        }
+
+        // 全文索引状态
+        if ("/search".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(SearchIndex.getStats()));
+            return;
+        }
+
+        // token 缓存状态
+        if ("/tokens".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(TokenCache.getStats()));
+            return;
+        }
+
+        // 响应压缩状态
+        if ("/compression".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(CompressionFilter.getStats()));
+            return;
+        }
+
+        // 秒杀库存状态
+        if ("/flashsale".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(FlashSaleInventory.getStats()));
+            return;
+        }
+
+        // 购物车写回缓存状态
+        if ("/carts".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(CartStore.getStats()));
+            return;
+        }
+
+        // 控制器异步执行状态
+        if ("/async".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(RequestExecutor.getStats()));
+            return;
+        }
+
+        // 慢接口执行通道状态
+        if ("/lanes".equals(pathInfo)) {
+            JsonUtil.writeJsonResponse(response, Result.success(RequestLane.getStats()));
+            return;
+        }
+
+        // 已执行的表结构迁移
+        if ("/migrations".equals(pathInfo)) {
+            try {
+                JsonUtil.writeJsonResponse(response, Result.success(SchemaMigrator.getApplied()));
+            } catch (SQLException e) {
+                JsonUtil.writeJsonResponse(response, Result.error("查询迁移记录失败: " + e.getMessage()));
+            }
+            return;
+        }
+
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+}
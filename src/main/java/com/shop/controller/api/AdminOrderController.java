@@ -1,16 +1,15 @@
 package com.shop.controller.api;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.OrderDao;
-import com.shop.dao.OrderItemDao;
 import com.shop.model.Order;
-import com.shop.model.OrderItem;
 import com.shop.model.Result;
 import com.shop.model.User;
 import com.shop.model.PageResult;
 import com.shop.util.JsonUtil;
+import com.shop.util.RequestLane;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
@@ -18,12 +17,11 @@ import java.io.IOException;
 import java.net.URLDecoder;
 import java.sql.SQLException;
 import java.util.Arrays;
-import java.util.List;
 
-@WebServlet("/api/admin/orders/*")
-public class AdminOrderController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/admin/orders/*", asyncSupported = true)
+public class AdminOrderController extends AsyncServlet {
+    private static final RequestLane LANE = RequestLane.get("adminOrders");
     private final OrderDao orderDao = new OrderDao();
-    private final OrderItemDao orderItemDao = new OrderItemDao();
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
@@ -38,6 +36,11 @@ public class AdminOrderController extends HttpServlet {
         // 设置响应类型
         response.setContentType("application/json;charset=UTF-8");
 
+        // 后台订单查询（筛选、计数）较慢，在 adminOrders 通道中执行，排队过多或超时时返回 503
+        LANE.execute(request, response, () -> query(request, response));
+    }
+
+    private void query(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
             String pathInfo = request.getPathInfo();
             
@@ -65,6 +68,27 @@ public class AdminOrderController extends HttpServlet {
                 String userId = request.getParameter("userId");
                 String orderNo = request.getParameter("orderNo");
 
+                // 游标分页（首页传空串）
+                String cursor = request.getParameter("cursor");
+                if (cursor != null) {
+                    if (pageSize < 1) {
+                        JsonUtil.writeJsonResponse(response, Result.error("无效的分页参数"));
+                        return;
+                    }
+                    PageResult<Order> orders;
+                    try {
+                        orders = orderDao.findAllByCursor(cursor, pageSize, status, orderNo, userId);
+                    } catch (IllegalArgumentException e) {
+                        JsonUtil.writeJsonResponse(response, Result.error("无效的分页游标"));
+                        return;
+                    }
+                    int total = orderDao.count(status, orderNo, userId);
+                    orders.setTotal(total);
+                    orders.setTotalPages((total + pageSize - 1) / pageSize);
+                    JsonUtil.writeJsonResponse(response, Result.success(orders));
+                    return;
+                }
+
                 // 调用 DAO 获取订单列表
                 PageResult<Order> orders = orderDao.findAll(page, pageSize, status, orderNo, userId);
                 JsonUtil.writeJsonResponse(response, Result.success(orders));
@@ -78,9 +102,6 @@ public class AdminOrderController extends HttpServlet {
                         JsonUtil.writeJsonResponse(response, Result.error("订单不存在"));
                         return;
                     }
-                    // 获取订单项
-                    List<OrderItem> orderItems = orderItemDao.findByOrderId(orderId);
-                    order.setItems(orderItems);
                     JsonUtil.writeJsonResponse(response, Result.success(order));
                 } catch (NumberFormatException e) {
                     JsonUtil.writeJsonResponse(response, Result.error("无效的订单ID"));
@@ -1,5 +1,6 @@
 package com.shop.controller.api;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.UserDao;
 import com.shop.model.User;
 import com.shop.model.Result;
@@ -8,15 +9,14 @@ import com.shop.util.JsonUtil;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-@WebServlet(urlPatterns = {"/api/admin/users", "/api/admin/users/*"})
-public class AdminUserController extends HttpServlet {
+@WebServlet(urlPatterns = {"/api/admin/users", "/api/admin/users/*"}, asyncSupported = true)
+public class AdminUserController extends AsyncServlet {
     private final UserDao userDao = new UserDao();
 
     @Override
@@ -52,6 +52,27 @@ public class AdminUserController extends HttpServlet {
             // 获取搜索参数
             String username = request.getParameter("username");
 
+            // 游标分页（首页传空串）
+            String cursor = request.getParameter("cursor");
+            if (cursor != null) {
+                if (pageSize < 1) {
+                    JsonUtil.writeJson(response, Result.error("无效的分页参数"));
+                    return;
+                }
+                PageResult<User> pageResult;
+                try {
+                    pageResult = userDao.findAllByCursor(cursor, pageSize, username);
+                } catch (IllegalArgumentException e) {
+                    JsonUtil.writeJson(response, Result.error("无效的分页游标"));
+                    return;
+                }
+                int total = userDao.count(username);
+                pageResult.setTotal(total);
+                pageResult.setTotalPages((total + pageSize - 1) / pageSize);
+                JsonUtil.writeJson(response, Result.success(pageResult));
+                return;
+            }
+
             // 获取用户列表
             List<User> users = userDao.findAll(page, pageSize, username);
             int total = userDao.count(username);
@@ -1,5 +1,6 @@
 package com.shop.controller.api;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.UserDao;
 import com.shop.model.User;
 import com.shop.model.Result;
@@ -8,15 +9,14 @@ import com.shop.util.JwtUtil;
 import com.shop.util.MD5Util;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-@WebServlet("/api/auth/*")
-public class AuthController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/auth/*", asyncSupported = true)
+public class AuthController extends AsyncServlet {
     private UserDao userDao = new UserDao();
     
     @Override
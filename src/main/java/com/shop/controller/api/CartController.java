@@ -1,26 +1,35 @@
 package com.shop.controller.api;
 
-import com.shop.dao.CartItemDao;
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.ProductDao;
 import com.shop.model.CartItem;
+import com.shop.model.CartOperation;
 import com.shop.model.Product;
 import com.shop.model.Result;
 import com.shop.model.User;
+import com.shop.service.CartBatchService;
+import com.shop.service.CartStore;
+import com.shop.util.ConfigUtil;
 import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+@WebServlet(urlPatterns = "/api/cart/*", asyncSupported = true)
+public class CartController extends AsyncServlet {
+    // 批量接口单次最多的操作行数
+    private static final int BATCH_MAX_OPERATIONS = ConfigUtil.getInt("cart.batchMaxOperations", 200);
 
-@WebServlet("/api/cart/*")
-public class CartController extends HttpServlet {
-    private CartItemDao cartItemDao = new CartItemDao();
     private ProductDao productDao = new ProductDao();
+    private final CartBatchService cartBatchService = new CartBatchService();
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
@@ -34,7 +43,7 @@ public class CartController extends HttpServlet {
         
         try {
             // 获取购物车列表
-            List<CartItem> cartItems = cartItemDao.findByUserId(user.getId());
+            List<CartItem> cartItems = CartStore.findByUserId(user.getId());
             JsonUtil.writeJsonResponse(response, Result.success("获取购物车成功", cartItems));
         } catch (SQLException e) {
             JsonUtil.writeJsonResponse(response, Result.error("获取购物车失败: " + e.getMessage()));
@@ -51,6 +60,12 @@ public class CartController extends HttpServlet {
             return;
         }
         
+        // 批量操作
+        if ("/batch".equals(request.getPathInfo())) {
+            doBatch(request, response, user);
+            return;
+        }
+        
         try {
             // 获取商品ID和数量
             String productIdStr = request.getParameter("productId");
@@ -91,27 +106,17 @@ public class CartController extends HttpServlet {
                 return;
             }
             
-            // 检查购物车是否已有此商品
-            CartItem existingItem = cartItemDao.findByProductId(productId, user.getId());
-            if (existingItem != null) {
-                // 更新数量
-                int newQuantity = existingItem.getQuantity() + quantity;
-                if (newQuantity > product.getStock()) {
-                    JsonUtil.writeJsonResponse(response, Result.error("商品库存不足"));
-                    return;
-                }
-                existingItem.setQuantity(newQuantity);
-                cartItemDao.update(existingItem);
-                JsonUtil.writeJsonResponse(response, Result.success("更新购物车成功", existingItem));
-            } else {
-                // 新增购物车项
-                CartItem cartItem = new CartItem();
-                cartItem.setUserId(user.getId());
-                cartItem.setProductId(productId);
-                cartItem.setQuantity(quantity);
-                cartItemDao.insert(cartItem);
-                cartItem.setProduct(product);
+            // 新增或累加数量，累加后超过库存时不修改
+            CartItem cartItem = CartStore.add(user.getId(), product, quantity);
+            if (cartItem == null) {
+                JsonUtil.writeJsonResponse(response, Result.error("商品库存不足"));
+                return;
+            }
+            cartItem.setProduct(product);
+            if (cartItem.getQuantity() == quantity) {
                 JsonUtil.writeJsonResponse(response, Result.success("添加到购物车成功", cartItem));
+            } else {
+                JsonUtil.writeJsonResponse(response, Result.success("更新购物车成功", cartItem));
             }
         } catch (SQLException e) {
             JsonUtil.writeJsonResponse(response, Result.error("操作购物车失败: " + e.getMessage()));
@@ -183,7 +188,7 @@ public class CartController extends HttpServlet {
             }
             
             // 获取购物车项
-            CartItem cartItem = cartItemDao.findById(cartItemId, user.getId());
+            CartItem cartItem = CartStore.findById(cartItemId, user.getId());
             if (cartItem == null) {
                 JsonUtil.writeJsonResponse(response, Result.error("购物车项不存在"));
                 return;
@@ -206,7 +211,7 @@ public class CartController extends HttpServlet {
             
             // 更新数量
             cartItem.setQuantity(quantity);
-            cartItemDao.update(cartItem);
+            CartStore.update(cartItem);
             cartItem.setProduct(product);
             
             JsonUtil.writeJsonResponse(response, Result.success("更新购物车成功", cartItem));
@@ -242,10 +247,55 @@ public class CartController extends HttpServlet {
             }
             
             // 删除购物车项
-            cartItemDao.delete(cartItemId, user.getId());
+            CartStore.delete(cartItemId, user.getId());
             JsonUtil.writeJsonResponse(response, Result.success("删除购物车项成功"));
         } catch (SQLException e) {
             JsonUtil.writeJsonResponse(response, Result.error("删除购物车项失败: " + e.getMessage()));
         }
     }
+
+    // 批量加入/修改/删除：请求体为 JSON 数组，每行为 {"op":"add","productId":1,"quantity":2}、
+    // {"op":"update","id":5,"quantity":3} 或 {"op":"remove","id":6}，按顺序执行，某行失败不影响其他行
+    // 返回每行的结果（success、message）和执行后的购物车
+    private void doBatch(HttpServletRequest request, HttpServletResponse response, User user) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String line;
+        try (BufferedReader reader = request.getReader()) {
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        
+        CartOperation[] operations;
+        try {
+            operations = JsonUtil.parseJson(sb.toString(), CartOperation[].class);
+        } catch (IOException e) {
+            JsonUtil.writeJsonResponse(response, Result.error("请求格式不正确"));
+            return;
+        }
+        if (operations == null || operations.length == 0) {
+            JsonUtil.writeJsonResponse(response, Result.error("操作列表不能为空"));
+            return;
+        }
+        if (operations.length > BATCH_MAX_OPERATIONS) {
+            JsonUtil.writeJsonResponse(response, Result.error("单次最多" + BATCH_MAX_OPERATIONS + "行操作"));
+            return;
+        }
+        for (CartOperation operation : operations) {
+            if (operation == null) {
+                JsonUtil.writeJsonResponse(response, Result.error("请求格式不正确"));
+                return;
+            }
+        }
+        
+        try {
+            List<CartItem> cartItems = cartBatchService.apply(user.getId(), Arrays.asList(operations));
+            Map<String, Object> data = new HashMap<>();
+            data.put("results", operations);
+            data.put("items", cartItems);
+            JsonUtil.writeJsonResponse(response, Result.success("批量操作完成", data));
+        } catch (SQLException e) {
+            JsonUtil.writeJsonResponse(response, Result.error("批量操作购物车失败: " + e.getMessage()));
+        }
+    }
 }
@@ -1,20 +1,21 @@
 package com.shop.controller.api;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.CategoryDao;
 import com.shop.model.Category;
 import com.shop.model.Result;
+import com.shop.util.HttpCacheUtil;
 import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
-@WebServlet("/api/categories/*")
-public class CategoryController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/categories/*", asyncSupported = true)
+public class CategoryController extends AsyncServlet {
     private CategoryDao categoryDao = new CategoryDao();
     
     @Override
@@ -26,6 +27,13 @@ public class CategoryController extends HttpServlet {
             // 获取所有分类
             if (pathInfo == null || pathInfo.equals("/")) {
                 List<Category> categories = categoryDao.findAll();
+                long hash = HttpCacheUtil.SEED;
+                for (Category category : categories) {
+                    hash = fingerprint(hash, category);
+                }
+                if (HttpCacheUtil.notModified(request, response, hash, 0)) {
+                    return;
+                }
                 JsonUtil.writeJsonResponse(response, Result.success("获取分类列表成功", categories));
                 return;
             }
@@ -38,6 +46,10 @@ public class CategoryController extends HttpServlet {
                     JsonUtil.writeJsonResponse(response, Result.error("分类不存在"));
                     return;
                 }
+                long lastModified = category.getUpdatedAt() != null ? category.getUpdatedAt().getTime() : 0;
+                if (HttpCacheUtil.notModified(request, response, fingerprint(HttpCacheUtil.SEED, category), lastModified)) {
+                    return;
+                }
                 JsonUtil.writeJsonResponse(response, Result.success("获取分类成功", category));
             } catch (NumberFormatException e) {
                 JsonUtil.writeJsonResponse(response, Result.error("分类ID格式不正确"));
@@ -46,4 +58,12 @@ public class CategoryController extends HttpServlet {
             JsonUtil.writeJsonResponse(response, Result.error("获取分类失败: " + e.getMessage()));
         }
     }
+
+    private long fingerprint(long hash, Category category) {
+        hash = HttpCacheUtil.hash(hash, category.getId());
+        hash = HttpCacheUtil.hash(hash, category.getName());
+        hash = HttpCacheUtil.hash(hash, category.getDescription());
+        hash = HttpCacheUtil.hash(hash, category.getCreatedAt() != null ? category.getCreatedAt().getTime() : 0);
+        return HttpCacheUtil.hash(hash, category.getUpdatedAt() != null ? category.getUpdatedAt().getTime() : 0);
+    }
 }
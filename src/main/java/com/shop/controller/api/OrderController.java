@@ -1,29 +1,27 @@
 package com.shop.controller.api;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shop.dao.CartItemDao;
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.OrderDao;
-import com.shop.dao.ProductDao;
 import com.shop.model.*;
+import com.shop.service.CheckoutService;
+import com.shop.util.JsonUtil;
 import com.shop.util.JwtUtil;
+import com.shop.util.OrderNoGenerator;
+import com.shop.util.RequestLane;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
-@WebServlet("/api/orders/*")
-public class OrderController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/orders/*", asyncSupported = true)
+public class OrderController extends AsyncServlet {
+    private static final RequestLane ORDER_LIST = RequestLane.get("orderList");
     private final OrderDao orderDao = new OrderDao();
-    private final CartItemDao cartItemDao = new CartItemDao();
-    private final ProductDao productDao = new ProductDao();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CheckoutService checkoutService = new CheckoutService();
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -64,7 +62,7 @@ public class OrderController extends HttpServlet {
             error.put("code", 500);
             error.put("message", e.getMessage());
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
         }
     }
 
@@ -78,31 +76,35 @@ public class OrderController extends HttpServlet {
 
         try {
             if (pathInfo == null || pathInfo.equals("/")) {
-                // 获取订单列表
-                getOrderList(req, resp, user);
+                // 获取订单列表：在 orderList 通道中执行，排队过多或超时时返回 503，不影响下单
+                ORDER_LIST.execute(req, resp, () -> {
+                    try {
+                        getOrderList(req, resp, user);
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                        writeError(resp, e);
+                    }
+                });
             } else if (pathInfo.matches("/\\d+")) {
                 // 获取订单详情
                 getOrderDetail(req, resp, user);
             } else {
                 resp.sendError(HttpServletResponse.SC_NOT_FOUND);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 500);
-            error.put("message", e.getMessage());
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
         } catch (Exception e) {
             e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 500);
-            error.put("message", e.getMessage());
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            writeError(resp, e);
         }
     }
 
+    private void writeError(HttpServletResponse resp, Exception e) throws IOException {
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", 500);
+        error.put("message", e.getMessage());
+        resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        JsonUtil.writeJson(resp, error);
+    }
+
     private void createOrderFromCart(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
         // 获取表单参数
         String receiverName = req.getParameter("receiver_name");
@@ -117,79 +119,21 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "收货信息不完整");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
-            return;
-        }
-
-        // 获取购物车商品
-        List<CartItem> cartItems = cartItemDao.findByUserId(user.getId());
-        if (cartItems.isEmpty()) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 400);
-            error.put("message", "购物车为空");
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
-        // 检查商品库存
-        for (CartItem cartItem : cartItems) {
-            Product product = productDao.findById(cartItem.getProductId());
-            if (product.getStock() < cartItem.getQuantity()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("code", 400);
-                error.put("message", "商品" + product.getName() + "库存不足");
-                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                resp.getWriter().write(objectMapper.writeValueAsString(error));
-                return;
-            }
-        }
-
         // 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(OrderNoGenerator.next());
         order.setUserId(user.getId());
         order.setStatus("pending");
         order.setReceiverName(receiverName);
         order.setReceiverPhone(receiverPhone);
         order.setReceiverAddress(receiverAddress);
 
-        // 创建订单项
-        List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        for (CartItem cartItem : cartItems) {
-            Product product = productDao.findById(cartItem.getProductId());
-            
-            OrderItem orderItem = new OrderItem();
-            orderItem.setProductId(product.getId());
-            orderItem.setPrice(product.getPrice());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItems.add(orderItem);
-
-            // 计算总金额
-            totalAmount = totalAmount.add(product.getPrice().multiply(new BigDecimal(cartItem.getQuantity())));
-
-            // 扣减库存
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productDao.updateStock(product.getId(), product.getStock());
-        }
-
-        order.setTotalAmount(totalAmount);
-        order.setItems(orderItems);
-
-        // 保存订单
-        order = orderDao.save(order);
-
-        // 清空购物车
-        cartItemDao.deleteByUserId(user.getId());
-
-        // 返回成功响应
-        Map<String, Object> result = new HashMap<>();
-        result.put("code", 200);
-        result.put("message", "订单创建成功");
-        result.put("data", order);
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        // 读购物车、扣库存、保存订单、清空购物车（同一事务）
+        writeCheckoutResult(resp, checkoutService.checkoutCart(order));
     }
 
     private void createOrderFromProduct(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -209,7 +153,7 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "参数不完整");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
@@ -224,7 +168,7 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "参数格式错误");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
@@ -234,67 +178,33 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "购买数量必须大于0");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
-            return;
-        }
-
-        // 检查商品是否存在
-        Product product = productDao.findById(productId);
-        if (product == null) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 400);
-            error.put("message", "商品不存在");
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
-            return;
-        }
-
-        // 检查库存
-        if (product.getStock() < quantity) {
-            Map<String, Object> error = new HashMap<>();
-            error.put("code", 400);
-            error.put("message", "商品库存不足");
-            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
         // 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(OrderNoGenerator.next());
         order.setUserId(user.getId());
         order.setStatus("pending");
         order.setReceiverName(receiverName);
         order.setReceiverPhone(receiverPhone);
         order.setReceiverAddress(receiverAddress);
 
-        // 创建订单项
-        OrderItem orderItem = new OrderItem();
-        orderItem.setProductId(product.getId());
-        orderItem.setPrice(product.getPrice());
-        orderItem.setQuantity(quantity);
-
-        List<OrderItem> orderItems = new ArrayList<>();
-        orderItems.add(orderItem);
-        order.setItems(orderItems);
-
-        // 计算总金额
-        BigDecimal totalAmount = product.getPrice().multiply(new BigDecimal(quantity));
-        order.setTotalAmount(totalAmount);
-
-        // 扣减库存
-        product.setStock(product.getStock() - quantity);
-        productDao.updateStock(product.getId(), product.getStock());
-
-        // 保存订单
-        order = orderDao.save(order);
+        // 扣减库存并保存订单（同一事务）
+        writeCheckoutResult(resp, checkoutService.checkoutProduct(order, productId, quantity));
+    }
 
-        // 返回成功响应
+    private void writeCheckoutResult(HttpServletResponse resp, Result<Order> checkout) throws IOException {
         Map<String, Object> result = new HashMap<>();
-        result.put("code", 200);
-        result.put("message", "订单创建成功");
-        result.put("data", order);
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        result.put("code", checkout.getCode());
+        result.put("message", checkout.getMessage());
+        if (checkout.getCode() == 200) {
+            result.put("data", checkout.getData());
+        } else {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        }
+        JsonUtil.writeJson(resp, result);
     }
 
     private void getOrderList(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -308,7 +218,7 @@ public class OrderController extends HttpServlet {
         result.put("code", 200);
         result.put("message", "获取订单列表成功");
         result.put("data", data);
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        JsonUtil.writeJson(resp, result);
     }
 
     private void getOrderDetail(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -325,7 +235,7 @@ public class OrderController extends HttpServlet {
         result.put("code", 200);
         result.put("message", "获取订单详情成功");
         result.put("data", order);
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        JsonUtil.writeJson(resp, result);
     }
 
     private void cancelOrder(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -343,22 +253,24 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "只能取消待付款的订单");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
-        // 恢复库存
-        for (OrderItem item : order.getItems()) {
-            Product product = productDao.findById(item.getProductId());
-            productDao.updateStock(product.getId(), product.getStock() + item.getQuantity());
+        // 更新状态并恢复库存（同一事务），并发取消时只有一个请求会恢复库存
+        if (!checkoutService.cancel(order)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("code", 400);
+            error.put("message", "只能取消待付款的订单");
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            JsonUtil.writeJson(resp, error);
+            return;
         }
 
-        orderDao.updateStatus(orderId, "cancelled");
-
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
         result.put("message", "订单取消成功");
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        JsonUtil.writeJson(resp, result);
     }
 
     private void completeOrder(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -376,7 +288,7 @@ public class OrderController extends HttpServlet {
         //     error.put("code", 400);
         //     error.put("message", "只能确认已发货的订单");
         //     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        //     resp.getWriter().write(objectMapper.writeValueAsString(error));
+        //     JsonUtil.writeJson(resp, error);
         //     return;
         // }
 
@@ -385,7 +297,7 @@ public class OrderController extends HttpServlet {
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
         result.put("message", "确认收货成功");
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
+        JsonUtil.writeJson(resp, result);
     }
 
     private void payOrder(HttpServletRequest req, HttpServletResponse resp, User user) throws SQLException, IOException {
@@ -398,7 +310,7 @@ public class OrderController extends HttpServlet {
             error.put("code", 404);
             error.put("message", "订单不存在");
             resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
@@ -407,7 +319,7 @@ public class OrderController extends HttpServlet {
             error.put("code", 400);
             error.put("message", "只能支付待付款的订单");
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            resp.getWriter().write(objectMapper.writeValueAsString(error));
+            JsonUtil.writeJson(resp, error);
             return;
         }
 
@@ -417,13 +329,6 @@ public class OrderController extends HttpServlet {
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
         result.put("message", "支付成功");
-        resp.getWriter().write(objectMapper.writeValueAsString(result));
-    }
-
-    private String generateOrderNo() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String timestamp = sdf.format(new Date());
-        String random = String.format("%03d", new Random().nextInt(1000));
-        return timestamp + random;
+        JsonUtil.writeJson(resp, result);
     }
 }
@@ -1,22 +1,26 @@
 package com.shop.controller.api;
 
+import com.shop.controller.AsyncServlet;
 import com.shop.dao.ProductDao;
+import com.shop.model.Category;
+import com.shop.model.PageResult;
 import com.shop.model.Product;
 import com.shop.model.Result;
+import com.shop.util.HttpCacheUtil;
 import com.shop.util.JsonUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
 
-@WebServlet("/api/products/*")
-public class ProductController extends HttpServlet {
+@WebServlet(urlPatterns = "/api/products/*", asyncSupported = true)
+public class ProductController extends AsyncServlet {
     private ProductDao productDao = new ProductDao();
     
     @Override
@@ -38,6 +42,11 @@ public class ProductController extends HttpServlet {
                         JsonUtil.writeJsonResponse(response, Result.error("商品已下架"));
                         return;
                     }
+                    // 商品未变化时返回 304
+                    if (HttpCacheUtil.notModified(request, response, fingerprint(HttpCacheUtil.SEED, product),
+                            lastModified(product))) {
+                        return;
+                    }
                     JsonUtil.writeJsonResponse(response, Result.success("获取商品成功", product));
                     return;
                 } catch (NumberFormatException e) {
@@ -52,10 +61,14 @@ public class ProductController extends HttpServlet {
             String keyword = request.getParameter("keyword");
             String categoryIdStr = request.getParameter("categoryId");
             String orderBy = request.getParameter("orderBy"); // price_asc, price_desc, create_time_desc
+            String cursor = request.getParameter("cursor"); // 传入 cursor（首页为空串）时使用游标分页
+            boolean facets = "true".equals(request.getParameter("facets")); // 同时返回分类、价格区间数量
+            String priceRangeStr = request.getParameter("priceRange"); // 价格区间下标，见 facets.priceRanges
             
             int page = 1;
             int pageSize = 10;
             Long categoryId = null;
+            Integer priceRange = null;
             
             try {
                 if (pageStr != null) {
@@ -76,23 +89,81 @@ public class ProductController extends HttpServlet {
                 if (categoryIdStr != null) {
                     categoryId = Long.parseLong(categoryIdStr);
                 }
+                if (priceRangeStr != null) {
+                    priceRange = Integer.parseInt(priceRangeStr);
+                }
             } catch (NumberFormatException e) {
                 JsonUtil.writeJsonResponse(response, Result.error("参数格式不正确"));
                 return;
             }
             
+            // 分面搜索：列表、总数和分面数量由索引一次算出，只包含在售商品
+            if (facets) {
+                PageResult<Product> pageResult = productDao.findFaceted(keyword, categoryId, 1, priceRange, page, pageSize, orderBy);
+                
+                Map<String, Object> data = new HashMap<>();
+                data.put("total", pageResult.getTotal());
+                data.put("page", page);
+                data.put("pageSize", pageSize);
+                data.put("totalPages", pageResult.getTotalPages());
+                data.put("list", pageResult.getList());
+                data.put("facets", pageResult.getFacets());
+                
+                long hash = HttpCacheUtil.hash(HttpCacheUtil.SEED, pageResult.getTotal());
+                hash = HttpCacheUtil.hash(hash, pageResult.getFacets());
+                if (HttpCacheUtil.notModified(request, response, fingerprint(hash, pageResult.getList()), 0)) {
+                    return;
+                }
+                JsonUtil.writeJsonResponse(response, Result.success("获取商品列表成功", data));
+                return;
+            }
+            
+            // 无关键词时只浏览在售商品，总数和分页都取自索引中的在售有序数组
+            boolean onSaleOnly = keyword == null || keyword.trim().isEmpty();
+            
+            // 游标分页
+            if (cursor != null) {
+                PageResult<Product> pageResult;
+                try {
+                    pageResult = productDao.findByCursor(keyword, categoryId, 1, cursor, pageSize, orderBy);
+                } catch (IllegalArgumentException e) {
+                    JsonUtil.writeJsonResponse(response, Result.error("无效的分页游标"));
+                    return;
+                }
+                int total = onSaleOnly ? productDao.countOnSale(categoryId) : productDao.count(keyword, categoryId);
+                
+                Map<String, Object> data = new HashMap<>();
+                data.put("total", total);
+                data.put("pageSize", pageSize);
+                data.put("totalPages", (total + pageSize - 1) / pageSize);
+                data.put("list", pageResult.getList());
+                data.put("nextCursor", pageResult.getNextCursor());
+                
+                long hash = HttpCacheUtil.hash(HttpCacheUtil.SEED, total);
+                hash = HttpCacheUtil.hash(hash, pageResult.getNextCursor());
+                if (HttpCacheUtil.notModified(request, response, fingerprint(hash, pageResult.getList()), 0)) {
+                    return;
+                }
+                JsonUtil.writeJsonResponse(response, Result.success("获取商品列表成功", data));
+                return;
+            }
+            
             // 计算总数
-            int total = productDao.count(keyword, categoryId);
+            int total = onSaleOnly ? productDao.countOnSale(categoryId) : productDao.count(keyword, categoryId);
             int totalPages = (total + pageSize - 1) / pageSize;
             if (page > totalPages && totalPages > 0) {
                 page = totalPages;
             }
             
             // 获取商品列表
-            List<Product> products = productDao.findByPage(keyword, categoryId, (page - 1) * pageSize, pageSize, orderBy);
-            
-            // 过滤掉已下架商品
-            products.removeIf(product -> product.getStatus() != 1);
+            List<Product> products;
+            if (onSaleOnly) {
+                products = productDao.findOnSale(categoryId, (page - 1) * pageSize, pageSize, orderBy);
+            } else {
+                products = productDao.findByPage(keyword, categoryId, (page - 1) * pageSize, pageSize, orderBy);
+                // 过滤掉已下架商品
+                products.removeIf(product -> product.getStatus() != 1);
+            }
             
             // 构造分页数据
             Map<String, Object> data = new HashMap<>();
@@ -102,9 +173,57 @@ public class ProductController extends HttpServlet {
             data.put("totalPages", totalPages);
             data.put("list", products);
             
+            // 列表内容（含总数和页码）未变化时返回 304
+            long hash = HttpCacheUtil.hash(HttpCacheUtil.SEED, total);
+            hash = HttpCacheUtil.hash(hash, page);
+            if (HttpCacheUtil.notModified(request, response, fingerprint(hash, products), 0)) {
+                return;
+            }
+            
             JsonUtil.writeJsonResponse(response, Result.success("获取商品列表成功", data));
         } catch (SQLException e) {
             JsonUtil.writeJsonResponse(response, Result.error("获取商品列表失败: " + e.getMessage()));
         }
     }
+
+    private long fingerprint(long hash, List<Product> products) {
+        for (Product product : products) {
+            hash = fingerprint(hash, product);
+        }
+        return hash;
+    }
+
+    // 覆盖响应中的全部字段；updated_at 只精确到秒，同一秒内的多次修改仍能区分
+    private long fingerprint(long hash, Product product) {
+        hash = HttpCacheUtil.hash(hash, product.getId());
+        hash = HttpCacheUtil.hash(hash, product.getName());
+        hash = HttpCacheUtil.hash(hash, product.getDescription());
+        hash = HttpCacheUtil.hash(hash, product.getPrice());
+        hash = HttpCacheUtil.hash(hash, product.getStock());
+        hash = HttpCacheUtil.hash(hash, product.getImageUrl());
+        hash = HttpCacheUtil.hash(hash, product.getStatus());
+        hash = HttpCacheUtil.hash(hash, time(product.getCreatedAt()));
+        hash = HttpCacheUtil.hash(hash, time(product.getUpdatedAt()));
+        hash = HttpCacheUtil.hash(hash, product.getCategoryId());
+        Category category = product.getCategory();
+        if (category != null) {
+            hash = HttpCacheUtil.hash(hash, category.getName());
+            hash = HttpCacheUtil.hash(hash, category.getDescription());
+            hash = HttpCacheUtil.hash(hash, time(category.getUpdatedAt()));
+        }
+        return hash;
+    }
+
+    // 商品和所属分类中较晚的更新时间
+    private long lastModified(Product product) {
+        long lastModified = time(product.getUpdatedAt());
+        if (product.getCategory() != null) {
+            lastModified = Math.max(lastModified, time(product.getCategory().getUpdatedAt()));
+        }
+        return lastModified;
+    }
+
+    private long time(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
 }
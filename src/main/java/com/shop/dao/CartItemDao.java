@@ -6,7 +6,9 @@ import com.shop.util.DatabaseUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CartItemDao {
     
@@ -30,6 +32,106 @@ public class CartItemDao {
         }
     }
     
+    // 加入购物车：不存在时插入、已存在时累加数量，依赖 (user_id, product_id) 唯一索引
+    // 商品不存在、已下架或累加后超过库存时不写入，返回 null；否则返回写入后的购物车项（不含商品信息）
+    // 仍被选为死锁牺牲者（SQLState 40001）时整个事务重试一次
+    public CartItem add(Long userId, Long productId, int quantity) throws SQLException {
+        try {
+            return addOnce(userId, productId, quantity);
+        } catch (SQLException e) {
+            if (!"40001".equals(e.getSQLState())) {
+                throw e;
+            }
+            return addOnce(userId, productId, quantity);
+        }
+    }
+
+    // 先锁定商品行：同一商品的并发加入在这里排队，不会在购物车唯一索引上先各自持有共享锁再互相等待排他锁而死锁
+    // 库存检查放在 UPDATE 分支中，累加后超过库存时保持原值；updated_at 先于 quantity 赋值，判断时用的是原数量
+    private CartItem addOnce(Long userId, Long productId, int quantity) throws SQLException {
+        String lockSql = "SELECT stock FROM products WHERE id = ? AND status = 1 FOR UPDATE";
+        String existsSql = "SELECT 1 FROM cart_items WHERE user_id = ? AND product_id = ?";
+        String sql = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "updated_at = CASE WHEN quantity + ? <= ? THEN CURRENT_TIMESTAMP ELSE updated_at END, " +
+                    "quantity = CASE WHEN quantity + ? <= ? THEN quantity + ? ELSE quantity END";
+        String selectSql = "SELECT * FROM cart_items WHERE user_id = ? AND product_id = ?";
+
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            int stock;
+            try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                stmt.setLong(1, productId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return null;
+                    }
+                    stock = rs.getInt("stock");
+                }
+            }
+            if (quantity > stock) {
+                conn.rollback();
+                return null;
+            }
+
+            boolean existed;
+            try (PreparedStatement stmt = conn.prepareStatement(existsSql)) {
+                stmt.setLong(1, userId);
+                stmt.setLong(2, productId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    existed = rs.next();
+                }
+            }
+
+            int affected;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, userId);
+                stmt.setLong(2, productId);
+                stmt.setInt(3, quantity);
+                stmt.setInt(4, quantity);
+                stmt.setInt(5, stock);
+                stmt.setInt(6, quantity);
+                stmt.setInt(7, stock);
+                stmt.setInt(8, quantity);
+                affected = stmt.executeUpdate();
+            }
+            // 影响行数：1 新增，2 累加；已有行保持原值时为 0（Connector/J 默认返回匹配行数时为 1），视为库存不足
+            if (affected == 0 || (existed && affected != 2)) {
+                conn.rollback();
+                return null;
+            }
+
+            CartItem cartItem = null;
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setLong(1, userId);
+                stmt.setLong(2, productId);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        cartItem = new CartItem();
+                        cartItem.setId(rs.getLong("id"));
+                        cartItem.setUserId(rs.getLong("user_id"));
+                        cartItem.setProductId(rs.getLong("product_id"));
+                        cartItem.setQuantity(rs.getInt("quantity"));
+                        cartItem.setCreatedAt(rs.getTimestamp("created_at"));
+                        cartItem.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    }
+                }
+            }
+            conn.commit();
+            return cartItem;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+    }
+    
     public void update(CartItem cartItem) throws SQLException {
         String sql = "UPDATE cart_items SET quantity = ? WHERE id = ? AND user_id = ?";
         
@@ -58,6 +160,13 @@ public class CartItemDao {
     }
     
     public List<CartItem> findByUserId(Long userId) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            return findByUserId(conn, userId);
+        }
+    }
+
+    // 在调用方连接（事务）内读取购物车
+    public List<CartItem> findByUserId(Connection conn, Long userId) throws SQLException {
         String sql = "SELECT ci.*, p.name as product_name, p.description as product_description, " +
                     "p.price as product_price, p.stock as product_stock, p.image_url as product_image_url, " +
                     "p.status as product_status " +
@@ -67,8 +176,7 @@ public class CartItemDao {
         
         List<CartItem> cartItems = new ArrayList<>();
         
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, userId);
             
@@ -197,4 +305,155 @@ public class CartItemDao {
             stmt.executeUpdate();
         }
     }
+
+    // 购物车写回：按ID插入或更新（id 由 CartStore 分配），在调用方事务内批量执行
+    // 先锁定已存在的同ID行，属于其他用户时抛出违反约束的异常，不会覆盖其他用户的购物车
+    public void upsert(Connection conn, List<CartItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        checkOwner(conn, items);
+        String sql = "INSERT INTO cart_items (id, user_id, product_id, quantity, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), updated_at = VALUES(updated_at)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (CartItem item : items) {
+                stmt.setLong(1, item.getId());
+                stmt.setLong(2, item.getUserId());
+                stmt.setLong(3, item.getProductId());
+                stmt.setInt(4, item.getQuantity());
+                stmt.setTimestamp(5, new Timestamp(item.getCreatedAt().getTime()));
+                stmt.setTimestamp(6, new Timestamp(item.getUpdatedAt().getTime()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // ID 在本节点分配，误在多个节点上开启写回时可能与其他节点分配的ID相同
+    private void checkOwner(Connection conn, List<CartItem> items) throws SQLException {
+        Map<Long, Long> owners = new HashMap<>(items.size() * 2);
+        for (CartItem item : items) {
+            owners.put(item.getId(), item.getUserId());
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, user_id FROM cart_items WHERE id IN (");
+        for (int i = 0; i < items.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") FOR UPDATE");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < items.size(); i++) {
+                stmt.setLong(i + 1, items.get(i).getId());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    if (!owners.get(id).equals(rs.getLong("user_id"))) {
+                        throw new SQLIntegrityConstraintViolationException("购物车项ID " + id + " 已属于其他用户", "23000");
+                    }
+                }
+            }
+        }
+    }
+
+    // 购物车写回、批量操作：批量删除，在调用方事务内执行
+    public void delete(Connection conn, List<CartItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM cart_items WHERE id = ? AND user_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (CartItem item : items) {
+                stmt.setLong(1, item.getId());
+                stmt.setLong(2, item.getUserId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // 锁定该用户的购物车行（含插入间隙），同一用户的批量操作和加入购物车在事务结束前排队执行
+    public void lockByUserId(Connection conn, Long userId) throws SQLException {
+        String sql = "SELECT id FROM cart_items WHERE user_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // 只为加锁，结果不使用
+                }
+            }
+        }
+    }
+    
+    // 批量操作：在调用方事务内批量插入新的购物车项
+    public void insert(Connection conn, List<CartItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (CartItem item : items) {
+                stmt.setLong(1, item.getUserId());
+                stmt.setLong(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // 批量操作：在调用方事务内批量修改数量
+    public void updateQuantities(Connection conn, List<CartItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE cart_items SET quantity = ? WHERE id = ? AND user_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (CartItem item : items) {
+                stmt.setInt(1, item.getQuantity());
+                stmt.setLong(2, item.getId());
+                stmt.setLong(3, item.getUserId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // 当前最大的购物车项ID，CartStore 从这里开始分配新ID
+    public long maxId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM cart_items";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // 在调用方事务内删除已下单的购物车项，返回实际删除的行数
+    public int deleteByIds(Connection conn, Long userId, List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("DELETE FROM cart_items WHERE user_id = ? AND id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            stmt.setLong(1, userId);
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 2, ids.get(i));
+            }
+            return stmt.executeUpdate();
+        }
+    }
 }
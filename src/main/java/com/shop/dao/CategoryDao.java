@@ -1,7 +1,8 @@
 package com.shop.dao;
 
 import com.shop.model.Category;
-import com.shop.util.DBUtil;
+import com.shop.util.CategoryCache;
+import com.shop.util.DatabaseUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -11,15 +12,18 @@ public class CategoryDao {
     
     public int insert(Category category) throws SQLException {
         String sql = "INSERT INTO categories (name, description, created_at, updated_at) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, category.getName());
             stmt.setString(2, category.getDescription());
             
-            Timestamp now = new Timestamp(System.currentTimeMillis());
+            // 取整到秒，与数据库中保存的值一致
+            Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
             stmt.setTimestamp(3, now);
             stmt.setTimestamp(4, now);
+            category.setCreatedAt(now);
+            category.setUpdatedAt(now);
             
             int affectedRows = stmt.executeUpdate();
             
@@ -35,45 +39,52 @@ public class CategoryDao {
                 }
             }
             
+            CategoryCache.put(category);
             return affectedRows;
         }
     }
     
     public int update(Category category) throws SQLException {
         String sql = "UPDATE categories SET name = ?, description = ?, updated_at = ? WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, category.getName());
             stmt.setString(2, category.getDescription());
-            stmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            // 取整到秒，与数据库中保存的值一致
+            Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+            stmt.setTimestamp(3, now);
             stmt.setLong(4, category.getId());
             
-            return stmt.executeUpdate();
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                category.setUpdatedAt(now);
+                // 商品的分类信息在读取时从快照填充，商品缓存不需要失效
+                CategoryCache.put(category);
+            }
+            return affectedRows;
         }
     }
     
+    // 读取走分类快照，首次使用时加载
     public Category findById(Long id) throws SQLException {
-        String sql = "SELECT * FROM categories WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setLong(1, id);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCategory(rs);
-                }
-            }
-        }
-        return null;
+        return CategoryCache.get(id, this::queryAll);
     }
     
     public List<Category> findAll() throws SQLException {
+        return CategoryCache.getAll(this::queryAll);
+    }
+    
+    // 预热分类快照
+    public void warmCache() throws SQLException {
+        CategoryCache.getAll(this::queryAll);
+    }
+    
+    private List<Category> queryAll() throws SQLException {
         String sql = "SELECT * FROM categories ORDER BY id ASC";
         List<Category> categories = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -87,11 +98,13 @@ public class CategoryDao {
     
     public int delete(Long id) throws SQLException {
         String sql = "DELETE FROM categories WHERE id = ?";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, id);
-            return stmt.executeUpdate();
+            int affectedRows = stmt.executeUpdate();
+            CategoryCache.remove(id);
+            return affectedRows;
         }
     }
     
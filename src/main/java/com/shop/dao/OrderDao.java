@@ -3,27 +3,108 @@ package com.shop.dao;
 import com.shop.model.Order;
 import com.shop.model.OrderItem;
 import com.shop.model.PageResult;
-import com.shop.util.DBUtil;
+import com.shop.util.CountCache;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.PageCursor;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class OrderDao {
+    // 单条 IN 查询携带的订单ID上限
+    private static final int ITEM_BATCH_SIZE = 500;
     
+    private final ProductDao productDao = new ProductDao();
+
     public Order save(Order order) throws SQLException {
-        String sql = "INSERT INTO orders (order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
         Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             conn.setAutoCommit(false);
             
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            insert(conn, order);
+            
+            conn.commit();
+            CountCache.invalidate("orders");
+            return order;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+    }
+
+    // 扣减库存与保存订单在同一事务中完成；任一商品库存不足则整体回滚，返回库存不足的订单项
+    public List<OrderItem> saveWithStock(Order order) throws SQLException {
+        Connection conn = null;
+
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            List<OrderItem> failed = productDao.decreaseStock(conn, order.getItems());
+            if (!failed.isEmpty()) {
+                conn.rollback();
+                return failed;
+            }
+
+            insert(conn, order);
+
+            conn.commit();
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+        productDao.evictStock(order.getItems());
+        CountCache.invalidate("orders");
+        return Collections.emptyList();
+    }
+
+    // 取消待付款订单并恢复库存，同一事务；订单已不是待付款状态时返回 false
+    public boolean cancel(Order order) throws SQLException {
+        String sql = "UPDATE orders SET status = 'cancelled', updated_at = NOW() WHERE id = ? AND status = 'pending'";
+        Connection conn = null;
+
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, order.getId());
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+            }
+
+            productDao.increaseStock(conn, order.getItems());
+
+            conn.commit();
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+        productDao.evictStock(order.getItems());
+        CountCache.invalidate("orders");
+        return true;
+    }
+
+    // 在调用方事务内写入订单及订单项
+    public void insert(Connection conn, Order order) throws SQLException {
+        String sql = "INSERT INTO orders (order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, order.getOrderNo());
             stmt.setLong(2, order.getUserId());
             stmt.setBigDecimal(3, order.getTotalAmount());
@@ -34,16 +115,17 @@ public class OrderDao {
             
             stmt.executeUpdate();
             
-            rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                order.setId(rs.getLong(1));
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    order.setId(rs.getLong(1));
+                }
             }
-            
-            // 保存订单项
-            if (order.getItems() != null && !order.getItems().isEmpty()) {
-                String itemSql = "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
-                stmt = conn.prepareStatement(itemSql, Statement.RETURN_GENERATED_KEYS);
-                
+        }
+        
+        // 保存订单项
+        if (order.getItems() != null && !order.getItems().isEmpty()) {
+            String itemSql = "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(itemSql)) {
                 for (OrderItem item : order.getItems()) {
                     stmt.setLong(1, order.getId());
                     stmt.setLong(2, item.getProductId());
@@ -54,54 +136,23 @@ public class OrderDao {
                 
                 stmt.executeBatch();
             }
-            
-            conn.commit();
-            return order;
-        } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
-            throw e;
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
-            }
-            DBUtil.close(conn, stmt, rs);
         }
     }
-    
+
     public Order findById(Long id) throws SQLException {
         String sql = "SELECT * FROM orders WHERE id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Order order = new Order();
-                    order.setId(rs.getLong("id"));
-                    order.setOrderNo(rs.getString("order_no"));
-                    order.setUserId(rs.getLong("user_id"));
-                    order.setTotalAmount(rs.getBigDecimal("total_amount"));
-                    order.setStatus(rs.getString("status"));
-                    order.setReceiverName(rs.getString("receiver_name"));
-                    order.setReceiverPhone(rs.getString("receiver_phone"));
-                    order.setReceiverAddress(rs.getString("receiver_address"));
-                    order.setCreatedAt(rs.getTimestamp("created_at"));
-                    order.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    Order order = mapResultSetToOrder(rs);
                     
                     // 获取订单项
-                    order.setItems(findOrderItems(order.getId()));
+                    loadOrderItems(conn, Collections.singletonList(order));
                     
                     return order;
                 }
@@ -113,27 +164,17 @@ public class OrderDao {
     public Order findByOrderNo(String orderNo) throws SQLException {
         String sql = "SELECT * FROM orders WHERE order_no = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, orderNo);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Order order = new Order();
-                    order.setId(rs.getLong("id"));
-                    order.setOrderNo(rs.getString("order_no"));
-                    order.setUserId(rs.getLong("user_id"));
-                    order.setTotalAmount(rs.getBigDecimal("total_amount"));
-                    order.setStatus(rs.getString("status"));
-                    order.setReceiverName(rs.getString("receiver_name"));
-                    order.setReceiverPhone(rs.getString("receiver_phone"));
-                    order.setReceiverAddress(rs.getString("receiver_address"));
-                    order.setCreatedAt(rs.getTimestamp("created_at"));
-                    order.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    Order order = mapResultSetToOrder(rs);
                     
                     // 获取订单项
-                    order.setItems(findOrderItems(order.getId()));
+                    loadOrderItems(conn, Collections.singletonList(order));
                     
                     return order;
                 }
@@ -144,46 +185,23 @@ public class OrderDao {
     }
     
     public List<Order> findByUserId(Long userId) throws SQLException {
-        System.out.println("Finding orders for user: " + userId);
-        String sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC";
+        String sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC, id DESC";
         List<Order> orders = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, userId);
-            System.out.println("Executing SQL: " + sql + " with userId: " + userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Order order = new Order();
-                    order.setId(rs.getLong("id"));
-                    order.setOrderNo(rs.getString("order_no")); // 确保正确设置 orderNo
-                    order.setUserId(rs.getLong("user_id"));
-                    order.setTotalAmount(rs.getBigDecimal("total_amount"));
-                    order.setStatus(rs.getString("status"));
-                    order.setReceiverName(rs.getString("receiver_name"));
-                    order.setReceiverPhone(rs.getString("receiver_phone"));
-                    order.setReceiverAddress(rs.getString("receiver_address"));
-                    order.setCreatedAt(rs.getTimestamp("created_at"));
-                    order.setUpdatedAt(rs.getTimestamp("updated_at"));
-                    
-                    System.out.println("Found order: " + order.getId() + ", order_no: " + order.getOrderNo());
-                    
-                    // 获取订单项
-                    List<OrderItem> items = findOrderItems(order.getId());
-                    System.out.println("Found " + items.size() + " items for order: " + order.getId());
-                    order.setItems(items);
-                    
-                    orders.add(order);
+                    orders.add(mapResultSetToOrder(rs));
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error finding orders: " + e.getMessage());
-            throw e;
+            
+            // 一次性批量获取订单项
+            loadOrderItems(conn, orders);
         }
-        
-        System.out.println("Returning " + orders.size() + " orders");
         return orders;
     }
     
@@ -193,7 +211,7 @@ public class OrderDao {
             sql.append(" AND status = ?");
         }
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
             int paramIndex = 1;
@@ -229,7 +247,7 @@ public class OrderDao {
 
         String sql = "UPDATE orders SET status = ?, updated_at = NOW() WHERE id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, status);
@@ -240,6 +258,7 @@ public class OrderDao {
                 throw new SQLException("更新订单状态失败");
             }
         }
+        CountCache.invalidate("orders");
     }
 
     private boolean isValidStatusTransition(String currentStatus, String newStatus) {
@@ -263,37 +282,25 @@ public class OrderDao {
     }
     
     public PageResult<Order> findAll(int page, int pageSize, String status, String orderNo, String userId) throws SQLException {
-        StringBuilder sql = new StringBuilder("SELECT SQL_CALC_FOUND_ROWS * FROM orders WHERE 1=1");
+        StringBuilder sql = new StringBuilder("SELECT * FROM orders WHERE 1=1");
         List<Object> params = new ArrayList<>();
         
         // 添加筛选条件
-        if (status != null && !status.isEmpty()) {
-            sql.append(" AND status = ?");
-            params.add(status);
-        }
-        if (orderNo != null && !orderNo.isEmpty()) {
-            sql.append(" AND order_no LIKE ?");
-            params.add("%" + orderNo + "%");
-        }
-        if (userId != null && !userId.isEmpty()) {
-            sql.append(" AND user_id = ?");
-            params.add(Long.parseLong(userId));
-        }
+        appendFilters(sql, params, status, orderNo, userId);
         
         // 添加排序和分页
-        sql.append(" ORDER BY created_at DESC LIMIT ?, ?");
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?, ?");
         params.add((page - 1) * pageSize);
         params.add(pageSize);
         
         List<Order> orders = new ArrayList<>();
-        int total = 0;
         
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql.toString());
             
             // 设置参数
@@ -304,63 +311,180 @@ public class OrderDao {
             // 执行查询
             rs = stmt.executeQuery();
             while (rs.next()) {
-                Order order = new Order();
-                order.setId(rs.getLong("id"));
-                order.setOrderNo(rs.getString("order_no"));
-                order.setUserId(rs.getLong("user_id"));
-                order.setTotalAmount(rs.getBigDecimal("total_amount"));
-                order.setStatus(rs.getString("status"));
-                order.setReceiverName(rs.getString("receiver_name"));
-                order.setReceiverPhone(rs.getString("receiver_phone"));
-                order.setReceiverAddress(rs.getString("receiver_address"));
-                order.setCreatedAt(rs.getTimestamp("created_at"));
-                order.setUpdatedAt(rs.getTimestamp("updated_at"));
-                
-                // 获取订单项
-                order.setItems(findOrderItems(order.getId()));
-                
-                orders.add(order);
+                orders.add(mapResultSetToOrder(rs));
             }
             
-            // 获取总记录数
-            try (PreparedStatement countStmt = conn.prepareStatement("SELECT FOUND_ROWS()");
-                 ResultSet countRs = countStmt.executeQuery()) {
-                if (countRs.next()) {
-                    total = countRs.getInt(1);
-                }
-            }
+            // 一次性批量获取本页订单的订单项
+            loadOrderItems(conn, orders);
         } finally {
-            DBUtil.close(conn, stmt, rs);
+            DatabaseUtil.close(conn, stmt, rs);
         }
         
+        // 获取总记录数（带缓存）
+        int total = count(status, orderNo, userId);
+        
         return new PageResult<Order>(orders, total, page, pageSize);
     }
     
-    private List<OrderItem> findOrderItems(Long orderId) throws SQLException {
-        String sql = "SELECT oi.*, p.name as product_name FROM order_items oi " +
-                    "LEFT JOIN products p ON oi.product_id = p.id " +
-                    "WHERE oi.order_id = ?";
-        List<OrderItem> items = new ArrayList<>();
+    // 游标分页：按 (created_at, id) 定位，深翻页不再扫描前面的行
+    public PageResult<Order> findAllByCursor(String cursor, int pageSize, String status, String orderNo, String userId) throws SQLException {
+        PageCursor after = PageCursor.decode(cursor, PageCursor.TYPE_TIME);
         
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM orders WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, status, orderNo, userId);
+        
+        if (after != null) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            params.add(after.getTimestamp());
+            params.add(after.getTimestamp());
+            params.add(after.getId());
+        }
+        
+        // 多取一行用于判断是否还有下一页
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1);
+        
+        List<Order> orders = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
-            stmt.setLong(1, orderId);
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    OrderItem item = new OrderItem();
-                    item.setId(rs.getLong("id"));
-                    item.setOrderId(rs.getLong("order_id"));
-                    item.setProductId(rs.getLong("product_id"));
-                    item.setProductName(rs.getString("product_name"));
-                    item.setQuantity(rs.getInt("quantity"));
-                    item.setPrice(rs.getBigDecimal("price"));
-                    item.setCreatedAt(rs.getTimestamp("created_at"));
-                    items.add(item);
+                    orders.add(mapResultSetToOrder(rs));
+                }
+            }
+            
+            PageResult<Order> pageResult = new PageResult<>();
+            pageResult.setPageSize(pageSize);
+            if (orders.size() > pageSize) {
+                orders.remove(pageSize);
+                Order last = orders.get(pageSize - 1);
+                pageResult.setNextCursor(PageCursor.ofTime(last.getCreatedAt(), last.getId()).encode());
+            }
+            
+            loadOrderItems(conn, orders);
+            pageResult.setList(orders);
+            return pageResult;
+        }
+    }
+    
+    // 总数走 CountCache，下单和改状态时失效
+    public int count(String status, String orderNo, String userId) throws SQLException {
+        boolean hasStatus = status != null && !status.isEmpty();
+        boolean hasOrderNo = orderNo != null && !orderNo.isEmpty();
+        boolean hasUserId = userId != null && !userId.isEmpty();
+        if (!hasStatus && !hasOrderNo && !hasUserId) {
+            return CountCache.countAll("orders", () -> queryCount(null, null, null));
+        }
+        String signature = "status=" + (hasStatus ? status : "") + "&no=" + (hasOrderNo ? orderNo : "") + "&user=" + (hasUserId ? userId : "");
+        return CountCache.count("orders", signature, () -> queryCount(status, orderNo, userId));
+    }
+    
+    private int queryCount(String status, String orderNo, String userId) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM orders WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, status, orderNo, userId);
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        return 0;
+    }
+    
+    private void appendFilters(StringBuilder sql, List<Object> params, String status, String orderNo, String userId) {
+        if (status != null && !status.isEmpty()) {
+            sql.append(" AND status = ?");
+            params.add(status);
+        }
+        if (orderNo != null && !orderNo.isEmpty()) {
+            sql.append(" AND order_no LIKE ?");
+            params.add("%" + orderNo + "%");
+        }
+        if (userId != null && !userId.isEmpty()) {
+            sql.append(" AND user_id = ?");
+            params.add(Long.parseLong(userId));
+        }
+    }
+    
+    // 用 IN 查询批量加载订单项，避免每个订单单独查询一次（N+1）
+    private void loadOrderItems(Connection conn, List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, Order> orderMap = new HashMap<>();
+        for (Order order : orders) {
+            order.setItems(new ArrayList<>());
+            orderMap.put(order.getId(), order);
+        }
+        
+        List<Long> orderIds = new ArrayList<>(orderMap.keySet());
+        for (int from = 0; from < orderIds.size(); from += ITEM_BATCH_SIZE) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + ITEM_BATCH_SIZE, orderIds.size()));
+            
+            StringBuilder sql = new StringBuilder(
+                "SELECT oi.*, p.name as product_name FROM order_items oi " +
+                "LEFT JOIN products p ON oi.product_id = p.id " +
+                "WHERE oi.order_id IN (");
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") ORDER BY oi.order_id, oi.id");
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setLong(i + 1, batch.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        OrderItem item = mapResultSetToOrderItem(rs);
+                        orderMap.get(item.getOrderId()).getItems().add(item);
+                    }
                 }
             }
         }
-        return items;
+    }
+    
+    private Order mapResultSetToOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getLong("id"));
+        order.setOrderNo(rs.getString("order_no"));
+        order.setUserId(rs.getLong("user_id"));
+        order.setTotalAmount(rs.getBigDecimal("total_amount"));
+        order.setStatus(rs.getString("status"));
+        order.setReceiverName(rs.getString("receiver_name"));
+        order.setReceiverPhone(rs.getString("receiver_phone"));
+        order.setReceiverAddress(rs.getString("receiver_address"));
+        order.setCreatedAt(rs.getTimestamp("created_at"));
+        order.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return order;
+    }
+    
+    private OrderItem mapResultSetToOrderItem(ResultSet rs) throws SQLException {
+        OrderItem item = new OrderItem();
+        item.setId(rs.getLong("id"));
+        item.setOrderId(rs.getLong("order_id"));
+        item.setProductId(rs.getLong("product_id"));
+        item.setProductName(rs.getString("product_name"));
+        item.setQuantity(rs.getInt("quantity"));
+        item.setPrice(rs.getBigDecimal("price"));
+        item.setCreatedAt(rs.getTimestamp("created_at"));
+        return item;
     }
 }
@@ -1,7 +1,7 @@
 package com.shop.dao;
 
 import com.shop.model.OrderItem;
-import com.shop.util.DBUtil;
+import com.shop.util.DatabaseUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -15,7 +15,7 @@ public class OrderItemDao {
                     "WHERE oi.order_id = ?";
         List<OrderItem> items = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, orderId);
@@ -40,7 +40,7 @@ public class OrderItemDao {
     public void save(OrderItem item) throws SQLException {
         String sql = "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setLong(1, item.getOrderId());
@@ -61,7 +61,7 @@ public class OrderItemDao {
     public void deleteByOrderId(Long orderId) throws SQLException {
         String sql = "DELETE FROM order_items WHERE order_id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, orderId);
@@ -1,14 +1,23 @@
 package com.shop.dao;
 
+import com.shop.model.OrderItem;
 import com.shop.model.Product;
 import com.shop.model.Category;
+import com.shop.model.PageResult;
+import com.shop.util.CatalogCache;
+import com.shop.util.CountCache;
 import com.shop.util.DatabaseUtil;
+import com.shop.util.PageCursor;
+import com.shop.util.SearchIndex;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 public class ProductDao {
+    private final CategoryDao categoryDao = new CategoryDao();
     
     public void insert(Product product) throws SQLException {
         String sql = "INSERT INTO products (category_id, name, description, price, stock, image_url, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -32,13 +41,18 @@ public class ProductDao {
                 }
             }
         }
+        CountCache.invalidate("products");
+        CatalogCache.invalidate(product.getId());
+        reindex(product.getId());
     }
     
+    // 先查目录缓存，未命中再查库
     public Product findById(Long id) throws SQLException {
-        String sql = "SELECT p.*, c.name as category_name, c.description as category_description " +
-                    "FROM products p " +
-                    "LEFT JOIN categories c ON p.category_id = c.id " +
-                    "WHERE p.id = ?";
+        return withCategory(CatalogCache.get(id, this::queryById));
+    }
+
+    private Product queryById(Long id) throws SQLException {
+        String sql = "SELECT p.* FROM products p WHERE p.id = ?";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -54,10 +68,13 @@ public class ProductDao {
         return null;
     }
     
+    // 按给定顺序批量读取，走目录缓存；已不存在的商品跳过
+    public List<Product> findByIds(List<Long> ids) throws SQLException {
+        return withCategory(CatalogCache.getAll(ids, this::queryByIds));
+    }
+    
     public List<Product> findAll() throws SQLException {
-        String sql = "SELECT p.*, c.name as category_name, c.description as category_description " +
-                    "FROM products p " +
-                    "LEFT JOIN categories c ON p.category_id = c.id";
+        String sql = "SELECT p.* FROM products p";
         
         List<Product> products = new ArrayList<>();
         
@@ -70,57 +87,242 @@ public class ProductDao {
             }
         }
         
-        return products;
+        return withCategory(products);
     }
 
     public List<Product> findByPage(String keyword, Long categoryId, int offset, int limit, String orderBy) throws SQLException {
+        // 无关键词时从目录缓存的分类列表中排序分页
+        if (keyword == null || keyword.trim().isEmpty()) {
+            List<Product> products = CatalogCache.getCategory(categoryId, this::queryByCategory, this::queryByIds);
+            if ("price_asc".equals(orderBy)) {
+                products.sort(Comparator.comparing(Product::getPrice).thenComparing(Product::getId));
+            } else if ("price_desc".equals(orderBy)) {
+                products.sort(Comparator.comparing(Product::getPrice).thenComparing(Product::getId).reversed());
+            }
+            if (offset >= products.size()) {
+                return new ArrayList<>();
+            }
+            return withCategory(new ArrayList<>(products.subList(Math.max(offset, 0), Math.min(offset + limit, products.size()))));
+        }
+
+        // 有关键词时查全文索引，未指定排序时按相关度排序，只加载当前页的商品
+        List<Long> ids = search(keyword, categoryId, null, orderBy, null);
+        if (offset >= ids.size()) {
+            return new ArrayList<>();
+        }
+        return withCategory(CatalogCache.getAll(ids.subList(Math.max(offset, 0), Math.min(offset + limit, ids.size())), this::queryByIds));
+    }
+
+    // 分面搜索：当前页、总数和各分类/价格区间数量一次算出，只加载当前页的商品
+    public PageResult<Product> findFaceted(String keyword, Long categoryId, Integer status, Integer priceRange,
+                                           int page, int pageSize, String orderBy) throws SQLException {
+        ensureIndexed();
+        SearchIndex.FacetHits hits = SearchIndex.facetSearch(keyword, categoryId, status, priceRange,
+                orderBy, (page - 1) * pageSize, pageSize);
+        PageResult<Product> pageResult = new PageResult<>(
+                withCategory(CatalogCache.getAll(hits.getIds(), this::queryByIds)), hits.getTotal(), page, pageSize);
+        pageResult.setFacets(hits.getFacets());
+        return pageResult;
+    }
+
+    // 在售商品（status=1）分页：在索引的有序数组中按下标取当前页，只加载当前页的商品
+    public List<Product> findOnSale(Long categoryId, int offset, int limit, String orderBy) throws SQLException {
+        ensureIndexed();
+        return withCategory(CatalogCache.getAll(SearchIndex.onSalePage(categoryId, orderBy, null, offset, limit), this::queryByIds));
+    }
+
+    public int countOnSale(Long categoryId) throws SQLException {
+        ensureIndexed();
+        return SearchIndex.onSaleCount(categoryId);
+    }
+
+    // 全文索引查询
+    private List<Long> search(String keyword, Long categoryId, Integer status, String orderBy, PageCursor after) throws SQLException {
+        ensureIndexed();
+        return SearchIndex.search(keyword, categoryId, status, orderBy, after);
+    }
+
+    // 首次使用时从目录缓存加载全部商品，之后按 search.refreshMillis 定期直接从数据库重建
+    private void ensureIndexed() throws SQLException {
+        SearchIndex.ensureLoaded(() -> CatalogCache.getCategory(null, this::queryByCategory, this::queryByIds));
+        SearchIndex.refreshIfStale(() -> queryByCategory(null));
+    }
+
+    // 从分类快照填充商品的分类信息，不再在每次查询中关联 categories 表；分类已删除时只保留分类ID
+    private List<Product> withCategory(List<Product> products) throws SQLException {
+        for (Product product : products) {
+            withCategory(product);
+        }
+        return products;
+    }
+
+    private Product withCategory(Product product) throws SQLException {
+        if (product == null) {
+            return null;
+        }
+        Category category = categoryDao.findById(product.getCategoryId());
+        if (category == null) {
+            category = new Category();
+            category.setId(product.getCategoryId());
+        }
+        product.setCategory(category);
+        return product;
+    }
+
+    // 商品写入后按数据库中的最新内容更新全文索引
+    private void reindex(Long id) throws SQLException {
+        if (!SearchIndex.isLoaded()) {
+            return;
+        }
+        Product product = findById(id);
+        if (product != null) {
+            SearchIndex.index(product);
+        } else {
+            SearchIndex.remove(id);
+        }
+    }
+
+    // 预热目录缓存：加载全部商品
+    public void warmCache() throws SQLException {
+        List<Product> products = CatalogCache.getCategory(null, this::queryByCategory, this::queryByIds);
+        SearchIndex.ensureLoaded(() -> products);
+    }
+
+    private List<Product> queryByCategory(Long categoryId) throws SQLException {
+        String sql = "SELECT p.* FROM products p" +
+                    (categoryId != null ? " WHERE p.category_id = ?" : "") +
+                    " ORDER BY p.created_at DESC, p.id DESC";
+
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (categoryId != null) {
+                stmt.setLong(1, categoryId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
+            }
+        }
+        return products;
+    }
+
+    private List<Product> queryByIds(List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
         StringBuilder sql = new StringBuilder(
-            "SELECT p.*, c.name as category_name, c.description as category_description " +
-            "FROM products p " +
-            "LEFT JOIN categories c ON p.category_id = c.id " +
-            "WHERE 1=1"
+            "SELECT p.* FROM products p WHERE p.id IN ("
         );
-        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
 
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 1, ids.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
+            }
+        }
+        return products;
+    }
+
+    // 游标分页：按 (排序列, id) 定位到上一页末尾之后，不再扫描并丢弃前面的行
+    public PageResult<Product> findByCursor(String keyword, Long categoryId, Integer status, String cursor, int limit, String orderBy) throws SQLException {
+        String sortType = "price_asc".equals(orderBy) || "price_desc".equals(orderBy)
+                ? PageCursor.TYPE_PRICE : PageCursor.TYPE_TIME;
+        PageCursor after = PageCursor.decode(cursor, sortType);
+
+        List<Product> products;
         if (keyword != null && !keyword.trim().isEmpty()) {
-            sql.append(" AND (p.name LIKE ? OR p.description LIKE ?)");
-            String likeKeyword = "%" + keyword.trim() + "%";
-            params.add(likeKeyword);
-            params.add(likeKeyword);
+            // 有关键词时在全文索引中排序并定位游标，多取一行用于判断是否还有下一页
+            String order = PageCursor.TYPE_PRICE.equals(sortType) ? orderBy : "create_time_desc";
+            List<Long> ids = search(keyword, categoryId, status, order, after);
+            products = CatalogCache.getAll(ids.subList(0, Math.min(limit + 1, ids.size())), this::queryByIds);
+        } else if (status != null && status == 1) {
+            // 在售商品直接在有序数组中二分定位游标
+            ensureIndexed();
+            products = CatalogCache.getAll(SearchIndex.onSalePage(categoryId, orderBy, after, 0, limit + 1), this::queryByIds);
+        } else {
+            products = queryByCursor(categoryId, status, after, limit, orderBy);
+        }
+
+        PageResult<Product> pageResult = new PageResult<>();
+        pageResult.setPageSize(limit);
+        if (products.size() > limit) {
+            products.remove(limit);
+            Product last = products.get(limit - 1);
+            PageCursor next = PageCursor.TYPE_PRICE.equals(sortType)
+                    ? PageCursor.ofPrice(last.getPrice(), last.getId())
+                    : PageCursor.ofTime(last.getCreatedAt(), last.getId());
+            pageResult.setNextCursor(next.encode());
         }
+        pageResult.setList(withCategory(products));
+        return pageResult;
+    }
+
+    private List<Product> queryByCursor(Long categoryId, Integer status, PageCursor after, int limit, String orderBy) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "SELECT p.* FROM products p WHERE 1=1"
+        );
+        List<Object> params = new ArrayList<>();
 
         if (categoryId != null) {
             sql.append(" AND p.category_id = ?");
             params.add(categoryId);
         }
 
-        // 添加排序
-        if (orderBy != null) {
-            switch (orderBy) {
-                case "price_asc":
-                    sql.append(" ORDER BY p.price ASC");
-                    break;
-                case "price_desc":
-                    sql.append(" ORDER BY p.price DESC");
-                    break;
-                case "create_time_desc":
-                    sql.append(" ORDER BY p.created_at DESC");
-                    break;
-                default:
-                    sql.append(" ORDER BY p.created_at DESC");
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            params.add(status);
+        }
+
+        if ("price_asc".equals(orderBy)) {
+            if (after != null) {
+                sql.append(" AND (p.price > ? OR (p.price = ? AND p.id > ?))");
+                params.add(after.getPrice());
+                params.add(after.getPrice());
+                params.add(after.getId());
             }
+            sql.append(" ORDER BY p.price ASC, p.id ASC");
+        } else if ("price_desc".equals(orderBy)) {
+            if (after != null) {
+                sql.append(" AND (p.price < ? OR (p.price = ? AND p.id < ?))");
+                params.add(after.getPrice());
+                params.add(after.getPrice());
+                params.add(after.getId());
+            }
+            sql.append(" ORDER BY p.price DESC, p.id DESC");
         } else {
-            sql.append(" ORDER BY p.created_at DESC");
+            if (after != null) {
+                sql.append(" AND (p.created_at < ? OR (p.created_at = ? AND p.id < ?))");
+                params.add(after.getTimestamp());
+                params.add(after.getTimestamp());
+                params.add(after.getId());
+            }
+            sql.append(" ORDER BY p.created_at DESC, p.id DESC");
         }
 
-        sql.append(" LIMIT ? OFFSET ?");
-        params.add(limit);
-        params.add(offset);
+        // 多取一行用于判断是否还有下一页
+        sql.append(" LIMIT ?");
+        params.add(limit + 1);
 
         List<Product> products = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-            
+
             for (int i = 0; i < params.size(); i++) {
                 stmt.setObject(i + 1, params.get(i));
             }
@@ -134,19 +336,23 @@ public class ProductDao {
         return products;
     }
 
+    // 关键词总数取自全文索引；其余走 CountCache，商品写操作时失效
     public int count(String keyword, Long categoryId) throws SQLException {
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            return search(keyword, categoryId, null, null, null).size();
+        }
+        if (categoryId == null) {
+            return CountCache.countAll("products", () -> queryCount(null));
+        }
+        return CountCache.count("products", "cat=" + categoryId, () -> queryCount(categoryId));
+    }
+
+    private int queryCount(Long categoryId) throws SQLException {
         StringBuilder sql = new StringBuilder(
             "SELECT COUNT(*) FROM products p WHERE 1=1"
         );
         List<Object> params = new ArrayList<>();
 
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            sql.append(" AND (p.name LIKE ? OR p.description LIKE ?)");
-            String likeKeyword = "%" + keyword.trim() + "%";
-            params.add(likeKeyword);
-            params.add(likeKeyword);
-        }
-
         if (categoryId != null) {
             sql.append(" AND p.category_id = ?");
             params.add(categoryId);
@@ -168,7 +374,8 @@ public class ProductDao {
         return 0;
     }
     
-    private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+    // 包级可见，供基准测试直接调用
+    Product mapResultSetToProduct(ResultSet rs) throws SQLException {
         Product product = new Product();
         product.setId(rs.getLong("id"));
         product.setCategoryId(rs.getLong("category_id"));
@@ -180,14 +387,6 @@ public class ProductDao {
         product.setStatus(rs.getInt("status"));
         product.setCreatedAt(rs.getTimestamp("created_at"));
         product.setUpdatedAt(rs.getTimestamp("updated_at"));
-        
-        // 设置分类信息
-        Category category = new Category();
-        category.setId(rs.getLong("category_id"));
-        category.setName(rs.getString("category_name"));
-        category.setDescription(rs.getString("category_description"));
-        product.setCategory(category);
-        
         return product;
     }
     
@@ -208,6 +407,9 @@ public class ProductDao {
             
             stmt.executeUpdate();
         }
+        CountCache.invalidate("products");
+        CatalogCache.invalidate(product.getId());
+        reindex(product.getId());
     }
     
     public void delete(Long id) throws SQLException {
@@ -219,6 +421,9 @@ public class ProductDao {
             stmt.setLong(1, id);
             stmt.executeUpdate();
         }
+        CountCache.invalidate("products");
+        CatalogCache.invalidate(id);
+        SearchIndex.remove(id);
     }
     
     public void updateStock(Long id, Integer stock) throws SQLException {
@@ -232,5 +437,51 @@ public class ProductDao {
             
             stmt.executeUpdate();
         }
+        CatalogCache.updateStock(id, stock);
+    }
+
+    // 在调用方事务内批量扣减库存，库存不足的行不会被更新，返回扣减失败的订单项
+    // 提交后需调用 evictStock 使缓存中的库存失效
+    public List<OrderItem> decreaseStock(Connection conn, List<OrderItem> items) throws SQLException {
+        String sql = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+        List<OrderItem> failed = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OrderItem item : items) {
+                stmt.setInt(1, item.getQuantity());
+                stmt.setLong(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.addBatch();
+            }
+
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    failed.add(items.get(i));
+                }
+            }
+        }
+        return failed;
+    }
+
+    // 在调用方事务内批量恢复库存（取消订单）
+    public void increaseStock(Connection conn, List<OrderItem> items) throws SQLException {
+        String sql = "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OrderItem item : items) {
+                stmt.setInt(1, item.getQuantity());
+                stmt.setLong(2, item.getProductId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // 库存在数据库中增减后，缓存里的库存已过期，下次读取时重新加载
+    public void evictStock(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            CatalogCache.evict(item.getProductId());
+        }
     }
 }
@@ -0,0 +1,120 @@
+package com.shop.dao;
+
+import com.shop.model.OrderItem;
+import com.shop.util.DatabaseUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 秒杀库存扣减流水：随订单在同一事务中写入，由后台批量合并到 products.stock 后删除
+public class StockReservationDao {
+
+    // 在调用方事务内记录订单占用的库存
+    public void insert(Connection conn, Long orderId, List<OrderItem> items) throws SQLException {
+        String sql = "INSERT INTO stock_reservations (product_id, order_id, quantity) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OrderItem item : items) {
+                stmt.setLong(1, item.getProductId());
+                stmt.setLong(2, orderId);
+                stmt.setInt(3, item.getQuantity());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // 把未合并的流水按商品汇总扣到 products.stock 并删除，同一事务；返回各商品扣减的数量
+    public Map<Long, Integer> flush() throws SQLException {
+        Map<Long, Integer> applied = new HashMap<>();
+        Connection conn = null;
+
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            // 以当前最大ID为界，合并期间新写入的流水留到下一轮
+            long maxId;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM stock_reservations")) {
+                rs.next();
+                maxId = rs.getLong(1);
+                if (rs.wasNull()) {
+                    conn.rollback();
+                    return applied;
+                }
+            }
+
+            // 加锁读取：ID 不大于 maxId 但尚未提交的流水（下单事务仍在进行）会阻塞本次读取，
+            // 等该事务提交后一并读取并删除，回滚的则不会读到；只有 MAX(id) 之后插入的流水留到下一轮
+            List<Long> ids = new ArrayList<>();
+            String selectSql = "SELECT id, product_id, quantity FROM stock_reservations WHERE id <= ? FOR UPDATE";
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setLong(1, maxId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong("id"));
+                        applied.merge(rs.getLong("product_id"), rs.getInt("quantity"), Integer::sum);
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE products SET stock = stock - ? WHERE id = ?")) {
+                for (Map.Entry<Long, Integer> entry : applied.entrySet()) {
+                    stmt.setInt(1, entry.getValue());
+                    stmt.setLong(2, entry.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            // 只删除本轮汇总过的流水
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM stock_reservations WHERE id = ?")) {
+                for (Long id : ids) {
+                    stmt.setLong(1, id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            conn.commit();
+            return applied;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+    }
+
+    // 读取商品当前库存（应在 flush 之后调用，此时数据库库存即真实剩余库存）
+    public Map<Long, Integer> findStock(List<Long> productIds) throws SQLException {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, stock FROM products WHERE id IN (");
+        for (int i = 0; i < productIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < productIds.size(); i++) {
+                stmt.setLong(i + 1, productIds.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getLong("id"), rs.getInt("stock"));
+                }
+            }
+        }
+        return stock;
+    }
+}
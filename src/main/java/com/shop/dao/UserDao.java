@@ -1,7 +1,10 @@
 package com.shop.dao;
 
+import com.shop.model.PageResult;
 import com.shop.model.User;
-import com.shop.util.DBUtil;
+import com.shop.util.CountCache;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.PageCursor;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -16,7 +19,7 @@ public class UserDao {
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql);
             stmt.setString(1, username);
             rs = stmt.executeQuery();
@@ -36,7 +39,7 @@ public class UserDao {
         } catch (SQLException e) {
             throw new RuntimeException("查询用户失败", e);
         } finally {
-            DBUtil.close(conn, stmt, rs);
+            DatabaseUtil.close(conn, stmt, rs);
         }
     }
 
@@ -47,7 +50,7 @@ public class UserDao {
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql);
             stmt.setLong(1, id);
             rs = stmt.executeQuery();
@@ -67,7 +70,7 @@ public class UserDao {
         } catch (SQLException e) {
             throw new RuntimeException("查询用户失败", e);
         } finally {
-            DBUtil.close(conn, stmt, rs);
+            DatabaseUtil.close(conn, stmt, rs);
         }
     }
 
@@ -77,7 +80,7 @@ public class UserDao {
         PreparedStatement stmt = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql);
             stmt.setString(1, newPassword);
             stmt.setLong(2, id);
@@ -85,7 +88,7 @@ public class UserDao {
         } catch (SQLException e) {
             throw new RuntimeException("更新密码失败", e);
         } finally {
-            DBUtil.close(conn, stmt, null);
+            DatabaseUtil.close(conn, stmt, null);
         }
     }
 
@@ -96,7 +99,7 @@ public class UserDao {
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword());
@@ -109,17 +112,18 @@ public class UserDao {
                 user.setId(rs.getLong(1));
             }
             
+            CountCache.invalidate("users");
             return rows > 0;
         } catch (SQLException e) {
             throw new RuntimeException("保存用户失败", e);
         } finally {
-            DBUtil.close(conn, stmt, rs);
+            DatabaseUtil.close(conn, stmt, rs);
         }
     }
 
     public List<User> findAll(int page, int pageSize, String username) throws SQLException {
         StringBuilder sql = new StringBuilder(
-            "SELECT SQL_CALC_FOUND_ROWS * FROM users WHERE 1=1"
+            "SELECT * FROM users WHERE 1=1"
         );
         List<Object> params = new ArrayList<>();
         
@@ -130,7 +134,7 @@ public class UserDao {
         }
         
         // 添加排序和分页
-        sql.append(" ORDER BY created_at DESC LIMIT ?, ?");
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?, ?");
         params.add((page - 1) * pageSize);
         params.add(pageSize);
         
@@ -140,7 +144,7 @@ public class UserDao {
         ResultSet rs = null;
         
         try {
-            conn = DBUtil.getConnection();
+            conn = DatabaseUtil.getConnection();
             stmt = conn.prepareStatement(sql.toString());
             
             // 设置参数
@@ -164,11 +168,75 @@ public class UserDao {
             
             return users;
         } finally {
-            DBUtil.close(conn, stmt, rs);
+            DatabaseUtil.close(conn, stmt, rs);
         }
     }
 
+    // 游标分页：按 (created_at, id) 定位，深翻页不再扫描前面的行
+    public PageResult<User> findAllByCursor(String cursor, int pageSize, String username) throws SQLException {
+        PageCursor after = PageCursor.decode(cursor, PageCursor.TYPE_TIME);
+        
+        StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        
+        if (username != null && !username.trim().isEmpty()) {
+            sql.append(" AND username LIKE ?");
+            params.add("%" + username.trim() + "%");
+        }
+        if (after != null) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            params.add(after.getTimestamp());
+            params.add(after.getTimestamp());
+            params.add(after.getId());
+        }
+        
+        // 多取一行用于判断是否还有下一页
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1);
+        
+        List<User> users = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User();
+                    user.setId(rs.getLong("id"));
+                    user.setUsername(rs.getString("username"));
+                    user.setRole(rs.getString("role"));
+                    user.setStatus(rs.getInt("status"));
+                    user.setCreatedAt(rs.getTimestamp("created_at"));
+                    user.setUpdatedAt(rs.getTimestamp("updated_at"));
+                    // 不返回密码
+                    users.add(user);
+                }
+            }
+        }
+        
+        PageResult<User> pageResult = new PageResult<>();
+        pageResult.setPageSize(pageSize);
+        if (users.size() > pageSize) {
+            users.remove(pageSize);
+            User last = users.get(pageSize - 1);
+            pageResult.setNextCursor(PageCursor.ofTime(last.getCreatedAt(), last.getId()).encode());
+        }
+        pageResult.setList(users);
+        return pageResult;
+    }
+
+    // 总数走 CountCache，新增和删除用户时失效
     public int count(String username) throws SQLException {
+        if (username == null || username.trim().isEmpty()) {
+            return CountCache.countAll("users", () -> queryCount(null));
+        }
+        return CountCache.count("users", "name=" + username.trim(), () -> queryCount(username));
+    }
+
+    private int queryCount(String username) throws SQLException {
         StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM users WHERE 1=1");
         List<Object> params = new ArrayList<>();
         
@@ -177,7 +245,7 @@ public class UserDao {
             params.add("%" + username.trim() + "%");
         }
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
             for (int i = 0; i < params.size(); i++) {
@@ -205,12 +273,13 @@ public class UserDao {
 
         String sql = "DELETE FROM users WHERE id = ? AND role != 'admin'";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, id);
             
             int rows = stmt.executeUpdate();
+            CountCache.invalidate("users");
             return rows > 0;
         }
     }
@@ -227,7 +296,7 @@ public class UserDao {
 
         String sql = "UPDATE users SET status = ? WHERE id = ? AND role != 'admin'";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, status);
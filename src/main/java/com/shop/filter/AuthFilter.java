@@ -3,14 +3,14 @@ package com.shop.filter;
 import com.shop.model.Result;
 import com.shop.model.User;
 import com.shop.util.JsonUtil;
-import com.shop.util.JwtUtil;
+import com.shop.util.TokenCache;
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
-@WebFilter("/*")
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
 public class AuthFilter implements Filter {
     
     @Override
@@ -56,8 +56,8 @@ public class AuthFilter implements Filter {
         }
         
         try {
-            // 验证token并获取用户信息
-            User user = JwtUtil.verifyToken(token);
+            // 验证token并获取用户信息，同一 token 在过期前只完整校验一次
+            User user = TokenCache.verify(token);
             if (user == null) {
                 JsonUtil.writeJsonResponse(httpResponse, Result.error("登录已过期，请重新登录"));
                 return;
@@ -76,7 +76,8 @@ public class AuthFilter implements Filter {
     public void destroy() {
     }
     
-    private boolean isPublicPath(String path) {
+    // 包级可见，供基准测试直接调用
+    boolean isPublicPath(String path) {
         // 静态资源
         if (path.startsWith("/images/") || 
             path.startsWith("/css/") || 
@@ -0,0 +1,194 @@
+package com.shop.filter;
+
+import com.shop.util.RequestExecutor;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+// 响应压缩：按 Accept-Encoding 协商 gzip / deflate，只压缩文本类响应，小于阈值的响应原样输出
+// Deflater 池化复用；带 ETag 且 Cache-Control 为 public 的响应（商品、分类接口）按 URL + ETag 缓存压缩结果
+public class CompressionFilter implements Filter {
+    private static final LongAdder COMPRESSED = new LongAdder();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder BYTES_IN = new LongAdder();
+    private static final LongAdder BYTES_OUT = new LongAdder();
+
+    private int threshold;
+    private int level;
+    private int poolSize;
+    private int cacheEntries;
+
+    // gzip 使用不带 zlib 头的 Deflater（nowrap），deflate 使用 zlib 格式
+    private final Queue<Deflater> gzipPool = new ConcurrentLinkedQueue<>();
+    private final Queue<Deflater> deflatePool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    // URL + ETag + 编码 -> 压缩后的字节
+    private final Map<String, byte[]> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        threshold = intParam(filterConfig, "threshold", 1024);
+        level = intParam(filterConfig, "level", 6);
+        poolSize = intParam(filterConfig, "poolSize", 32);
+        cacheEntries = intParam(filterConfig, "cacheEntries", 512);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // 响应内容随 Accept-Encoding 变化，CDN 需要按它区分缓存
+        httpResponse.addHeader("Vary", "Accept-Encoding");
+
+        String encoding = negotiate(httpRequest.getHeader("Accept-Encoding"));
+        // 范围请求按原始字节计算偏移，不压缩
+        if (encoding == null || httpRequest.getHeader("Range") != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressionResponseWrapper wrapper = new CompressionResponseWrapper(httpResponse, this, encoding, cacheKey(httpRequest));
+        // 控制器异步执行时 chain.doFilter 会先返回，由工作线程在结束请求前收尾
+        RequestExecutor.onFinish(request, wrapper::finish);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                wrapper.finish();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = gzipPool.poll()) != null) {
+            deflater.end();
+        }
+        while ((deflater = deflatePool.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("compressed", COMPRESSED.sum());
+        stats.put("cacheHits", CACHE_HITS.sum());
+        stats.put("bytesIn", BYTES_IN.sum());
+        stats.put("bytesOut", BYTES_OUT.sum());
+        return stats;
+    }
+
+    int getThreshold() {
+        return threshold;
+    }
+
+    Deflater borrow(String encoding) {
+        Deflater deflater = pool(encoding).poll();
+        if (deflater != null) {
+            pooled.decrementAndGet();
+            return deflater;
+        }
+        return new Deflater(level, "gzip".equals(encoding));
+    }
+
+    void release(String encoding, Deflater deflater) {
+        deflater.reset();
+        if (pooled.incrementAndGet() <= poolSize) {
+            pool(encoding).offer(deflater);
+        } else {
+            pooled.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    byte[] getCached(String key) {
+        byte[] bytes = cache.get(key);
+        if (bytes != null) {
+            CACHE_HITS.increment();
+        }
+        return bytes;
+    }
+
+    void putCached(String key, byte[] bytes) {
+        // 满了直接清空：ETag 变化后旧条目不会再命中，没有必要按 LRU 维护
+        if (cache.size() >= cacheEntries) {
+            cache.clear();
+        }
+        cache.put(key, bytes);
+    }
+
+    void recordCompressed(long bytesIn, long bytesOut) {
+        COMPRESSED.increment();
+        BYTES_IN.add(bytesIn);
+        BYTES_OUT.add(bytesOut);
+    }
+
+    private Queue<Deflater> pool(String encoding) {
+        return "gzip".equals(encoding) ? gzipPool : deflatePool;
+    }
+
+    private String cacheKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query != null ? request.getRequestURI() + "?" + query : request.getRequestURI();
+    }
+
+    // 按 q 值选择，同等 q 值时优先 gzip；q=0 表示不接受，* 适用于未单独列出的编码
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals("deflate")) {
+                deflate = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        }
+        return deflate > 0 ? "deflate" : null;
+    }
+
+    private static int intParam(FilterConfig filterConfig, String name, int defaultValue) {
+        String value = filterConfig.getInitParameter(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+}
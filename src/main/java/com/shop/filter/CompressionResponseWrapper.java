@@ -0,0 +1,335 @@
+package com.shop.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// CompressionFilter 使用的响应包装：先在内存中缓冲，达到阈值后决定是否压缩
+//   - 未达到阈值：原样输出并设置 Content-Length
+//   - 可缓存的响应：完整缓冲后压缩（或直接取缓存），设置 Content-Length
+//   - 其他文本响应：超过阈值后边写边压缩
+class CompressionResponseWrapper extends HttpServletResponseWrapper {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final HttpServletResponse response;
+    private final CompressionFilter filter;
+    private final String encoding;
+    private final String cacheKey;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    // 开始边写边压缩后不为 null
+    private DeflatingStream deflating;
+    // 决定不压缩后直接写底层响应
+    private OutputStream passthrough;
+    private long contentLength = -1;
+    private boolean finished;
+
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    CompressionResponseWrapper(HttpServletResponse response, CompressionFilter filter, String encoding, String cacheKey) {
+        super(response);
+        this.response = response;
+        this.filter = filter;
+        this.encoding = encoding;
+        this.cacheKey = cacheKey;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new BufferingServletOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            outputStream = new BufferingServletOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // 长度在输出时确定，控制器设置的长度只在原样输出时使用
+    @Override
+    public void setContentLength(int len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            contentLength = value != null ? Long.parseLong(value) : -1;
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        // 缓冲阶段忽略，避免过早提交响应头
+        if (passthrough != null || deflating != null) {
+            if (deflating != null) {
+                deflating.flush();
+            }
+            response.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (passthrough == null && deflating == null) {
+            buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (passthrough == null && deflating == null) {
+            buffer.reset();
+            contentLength = -1;
+        }
+        super.reset();
+    }
+
+    // 由过滤器在请求处理结束后调用；异步处理时由工作线程调用，过滤器线程可能随后再调用一次
+    synchronized void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (writer != null) {
+            writer.flush();
+        }
+
+        if (deflating != null) {
+            deflating.finish();
+            return;
+        }
+        if (passthrough != null) {
+            passthrough.flush();
+            return;
+        }
+        if (buffer.size() == 0) {
+            return;
+        }
+
+        if (buffer.size() < filter.getThreshold() || !compressible()) {
+            writeRaw();
+            return;
+        }
+
+        String key = cacheable() ? encoding + " " + cacheKey + " " + response.getHeader("ETag") : null;
+        byte[] bytes = key != null ? filter.getCached(key) : null;
+        if (bytes == null) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.size() / 4 + 64);
+            DeflatingStream stream = new DeflatingStream(compressed);
+            buffer.writeTo(stream);
+            stream.finish();
+            bytes = compressed.toByteArray();
+            if (key != null) {
+                filter.putCached(key, bytes);
+            }
+        }
+        response.setHeader("Content-Encoding", encoding);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (deflating != null) {
+            deflating.write(b, off, len);
+        } else if (passthrough != null) {
+            passthrough.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+            if (buffer.size() >= filter.getThreshold() && !cacheable()) {
+                if (compressible()) {
+                    deflating = new DeflatingStream(response.getOutputStream());
+                    response.setHeader("Content-Encoding", encoding);
+                    buffer.writeTo(deflating);
+                } else {
+                    writeRaw();
+                    passthrough = response.getOutputStream();
+                }
+                buffer.reset();
+            }
+        }
+    }
+
+    private void writeRaw() throws IOException {
+        if (contentLength >= 0) {
+            response.setContentLengthLong(contentLength);
+        } else if (finished) {
+            response.setContentLength(buffer.size());
+        }
+        buffer.writeTo(response.getOutputStream());
+    }
+
+    // 文本类内容才值得压缩；控制器自行编码过的响应不再压缩
+    private boolean compressible() {
+        if (response.getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        int status = response.getStatus();
+        if (status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED) {
+            return false;
+        }
+        String type = response.getContentType();
+        if (type == null) {
+            return false;
+        }
+        type = type.toLowerCase();
+        return type.startsWith("text/") || type.startsWith("application/json")
+                || type.startsWith("application/javascript") || type.startsWith("image/svg+xml");
+    }
+
+    // 设置了 ETag 的公开响应（HttpCacheUtil）内容由 ETag 决定，压缩结果可以复用
+    private boolean cacheable() {
+        String cacheControl = response.getHeader("Cache-Control");
+        return response.getStatus() == HttpServletResponse.SC_OK
+                && response.getHeader("ETag") != null
+                && cacheControl != null && cacheControl.contains("public");
+    }
+
+    private class BufferingServletOutputStream extends ServletOutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            CompressionResponseWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            CompressionResponseWrapper.this.write(b, off, len);
+        }
+
+        // 关闭由过滤器的 finish 完成，这里不提交响应
+        @Override
+        public void close() {
+        }
+
+        // 内容先写入内存缓冲区，随时可写
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        // 非阻塞输出：缓冲区总是可写，立即通知监听器；真正的网络写出在 finish 中完成
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (writeListener == null) {
+                throw new NullPointerException("writeListener");
+            }
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException e) {
+                writeListener.onError(e);
+            }
+        }
+    }
+
+    // 使用池中的 Deflater 压缩；gzip 手动写 10 字节头和 CRC32 / 长度尾部，deflate 为 zlib 格式
+    private class DeflatingStream extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] chunk = new byte[8192];
+        private long bytesIn;
+        private long bytesOut;
+
+        DeflatingStream(OutputStream out) throws IOException {
+            this.out = out;
+            this.deflater = filter.borrow(encoding);
+            if ("gzip".equals(encoding)) {
+                out.write(GZIP_HEADER);
+                bytesOut += GZIP_HEADER.length;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            crc.update(b, off, len);
+            bytesIn += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain(Deflater.SYNC_FLUSH);
+            out.flush();
+        }
+
+        void finish() throws IOException {
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                if ("gzip".equals(encoding)) {
+                    writeInt((int) crc.getValue());
+                    writeInt((int) bytesIn);
+                }
+                out.flush();
+                filter.recordCompressed(bytesIn, bytesOut);
+            } finally {
+                filter.release(encoding, deflater);
+            }
+        }
+
+        private void drain(int flush) throws IOException {
+            int n;
+            do {
+                n = deflater.deflate(chunk, 0, chunk.length, flush);
+                if (n > 0) {
+                    out.write(chunk, 0, n);
+                    bytesOut += n;
+                }
+            } while (n == chunk.length);
+        }
+
+        // gzip 尾部为小端序
+        private void writeInt(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write((value >>> 8) & 0xff);
+            out.write((value >>> 16) & 0xff);
+            out.write((value >>> 24) & 0xff);
+            bytesOut += 4;
+        }
+    }
+}
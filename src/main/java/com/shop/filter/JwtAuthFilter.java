@@ -1,9 +1,9 @@
 package com.shop.filter;
 
 import com.shop.util.JsonUtil;
-import com.shop.util.JwtUtil;
+import com.shop.util.TokenCache;
 import com.shop.model.Result;
-import io.jsonwebtoken.Claims;
+import com.shop.model.User;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
@@ -62,19 +62,17 @@ public class JwtAuthFilter implements Filter {
         token = token.substring(7);
 
         try {
-            // 验证token
-            if (!JwtUtil.validateToken(token)) {
+            // 验证并解析token（只解析一次，结果缓存到过期）
+            User user = TokenCache.verify(token);
+            if (user == null) {
                 JsonUtil.writeJson(httpResponse, Result.error(401, "token无效"));
                 return;
             }
-
-            // 解析token
-            Claims claims = JwtUtil.parseToken(token);
             
             // 将用户信息存入request
-            request.setAttribute("userId", Long.parseLong(claims.getSubject()));
-            request.setAttribute("username", claims.get("username"));
-            request.setAttribute("role", claims.get("role"));
+            request.setAttribute("userId", user.getId());
+            request.setAttribute("username", user.getUsername());
+            request.setAttribute("role", user.getRole());
 
             chain.doFilter(request, response);
         } catch (Exception e) {
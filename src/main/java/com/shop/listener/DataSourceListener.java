@@ -0,0 +1,91 @@
+package com.shop.listener;
+
+import com.shop.dao.CategoryDao;
+import com.shop.dao.ProductDao;
+import com.shop.service.CartStore;
+import com.shop.service.FlashSaleInventory;
+import com.shop.util.ConfigUtil;
+import com.shop.util.DatabaseUtil;
+import com.shop.util.JsonUtil;
+import com.shop.util.RequestExecutor;
+import com.shop.util.RequestLane;
+import com.shop.util.SchemaMigrator;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+@WebListener
+public class DataSourceListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // 应用启动时建立连接池
+        DatabaseUtil.start();
+
+        // 执行未执行的表结构迁移（sql/migrations），失败时抛出以阻止在不完整的表结构上启动
+        // 多节点部署时只需在一个节点上开启
+        if (ConfigUtil.getBoolean("db.migrate", true)) {
+            try {
+                SchemaMigrator.migrate();
+            } catch (SQLException e) {
+                throw new IllegalStateException("表结构迁移失败", e);
+            }
+        }
+
+        // 预先构建模型类的 JSON 序列化器，失败不影响启动
+        try {
+            JsonUtil.warmUp();
+        } catch (IOException e) {
+            sce.getServletContext().log("JSON 序列化器预热失败", e);
+        }
+
+        // 加载分类快照，失败不影响启动，首次访问时再加载
+        try {
+            new CategoryDao().warmCache();
+        } catch (SQLException e) {
+            sce.getServletContext().log("分类快照加载失败", e);
+        }
+
+        // 预热商品目录缓存，失败不影响启动，首次访问时再加载
+        if (ConfigUtil.getBoolean("catalog.preload", true)) {
+            try {
+                new ProductDao().warmCache();
+            } catch (SQLException e) {
+                sce.getServletContext().log("商品目录缓存预热失败", e);
+            }
+        }
+
+        // 秒杀库存：对账遗留流水并加载活动商品库存，失败时抛出以阻止带着错误库存启动
+        try {
+            FlashSaleInventory.start();
+        } catch (SQLException e) {
+            throw new IllegalStateException("秒杀库存初始化失败", e);
+        }
+
+        // 购物车写回缓存：需要从数据库取购物车项ID的起点
+        try {
+            CartStore.start();
+        } catch (SQLException e) {
+            throw new IllegalStateException("购物车缓存初始化失败", e);
+        }
+
+        // 控制器异步执行：async.mode=virtual 但运行环境不是 Java 21 时抛出，阻止以错误的配置启动
+        RequestExecutor.start();
+
+        // 慢接口执行通道：线程数之和不小于连接池大小时抛出，避免报表查询占满连接
+        RequestLane.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // 先等待执行通道和异步执行中的请求结束，再写回购物车修改、合并剩余的秒杀扣减流水，再关闭连接池释放所有物理连接
+        RequestLane.stop();
+        RequestExecutor.stop();
+        CartStore.stop();
+        FlashSaleInventory.stop();
+        DatabaseUtil.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.shop.model;
+
+// 批量购物车操作的一行：op 为 add（productId、quantity）、update（id、quantity）或 remove（id）
+// 执行后填入 success 和 message，原样返回给客户端
+public class CartOperation {
+    private String op;
+    private Long id;
+    private Long productId;
+    private Integer quantity;
+    private Boolean success;
+    private String message;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
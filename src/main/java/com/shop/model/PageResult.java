@@ -1,6 +1,7 @@
 package com.shop.model;
 
 import java.util.List;
+import java.util.Map;
 
 public class PageResult<T> {
     private List<T> list;
@@ -8,6 +9,8 @@ public class PageResult<T> {
     private int page;
     private int pageSize;
     private int totalPages;
+    private String nextCursor;  // 游标分页时下一页的游标，没有下一页为 null
+    private Map<String, Object> facets;  // 分面搜索时各分类、价格区间的数量
 
     public PageResult() {
     }
@@ -59,4 +62,20 @@ public class PageResult<T> {
     public void setTotalPages(int totalPages) {
         this.totalPages = totalPages;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Map<String, Object> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Object> facets) {
+        this.facets = facets;
+    }
 }
@@ -0,0 +1,149 @@
+package com.shop.service;
+
+import com.shop.model.CartItem;
+import com.shop.model.CartOperation;
+import com.shop.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 批量购物车操作的执行计划：在购物车当前内容的副本上按顺序执行每一行并填入结果，再汇总出需要写入的变更
+// 同一购物车项被修改多次时只写最终数量；删除后又加入同一商品时删除旧行、插入新行
+// 库存和上下架状态以传入的商品为准，与单条加入/修改接口的检查一致；商品不存在时 products 中对应的值为 null
+class CartBatch {
+    // 原有的、被删除的购物车项
+    final List<CartItem> deletes = new ArrayList<>();
+    // 原有的、数量有变化的购物车项（已是最终数量）
+    final List<CartItem> updates = new ArrayList<>();
+    // 新加入的购物车项，id 为 null
+    final List<CartItem> inserts = new ArrayList<>();
+
+    static CartBatch plan(Long userId, Collection<CartItem> current, List<CartOperation> operations,
+                          Map<Long, Product> products) {
+        // 每个商品在购物车中只有一项
+        Map<Long, CartItem> byProduct = new LinkedHashMap<>();
+        Map<Long, CartItem> byId = new HashMap<>();
+        Map<Long, Integer> original = new HashMap<>();
+        for (CartItem item : current) {
+            CartItem copy = CartStore.copy(item);
+            byProduct.put(copy.getProductId(), copy);
+            byId.put(copy.getId(), copy);
+            original.put(copy.getId(), copy.getQuantity());
+        }
+
+        for (CartOperation operation : operations) {
+            String error = apply(userId, operation, byProduct, byId, products);
+            operation.setSuccess(error == null);
+            if (error != null) {
+                operation.setMessage(error);
+            }
+        }
+
+        CartBatch batch = new CartBatch();
+        for (CartItem item : current) {
+            CartItem result = byId.get(item.getId());
+            if (result == null) {
+                batch.deletes.add(item);
+            } else if (!result.getQuantity().equals(original.get(item.getId()))) {
+                batch.updates.add(result);
+            }
+        }
+        for (CartItem item : byProduct.values()) {
+            if (item.getId() == null) {
+                batch.inserts.add(item);
+            }
+        }
+        return batch;
+    }
+
+    boolean isEmpty() {
+        return deletes.isEmpty() && updates.isEmpty() && inserts.isEmpty();
+    }
+
+    // 返回 null 表示成功，否则为失败原因；成功时 message 为与单条接口相同的提示
+    private static String apply(Long userId, CartOperation operation, Map<Long, CartItem> byProduct,
+                                Map<Long, CartItem> byId, Map<Long, Product> products) {
+        String op = operation.getOp();
+        Integer quantity = operation.getQuantity();
+        if ("add".equals(op)) {
+            if (operation.getProductId() == null || quantity == null) {
+                return "参数不完整";
+            }
+            if (quantity <= 0) {
+                return "商品数量必须大于0";
+            }
+            Product product = products.get(operation.getProductId());
+            String error = check(product);
+            if (error != null) {
+                return error;
+            }
+            CartItem item = byProduct.get(product.getId());
+            // 按 long 累加，超大的数量不会溢出成负数而绕过库存检查
+            long newQuantity = (long) (item != null ? item.getQuantity() : 0) + quantity;
+            if (newQuantity > product.getStock()) {
+                return "商品库存不足";
+            }
+            if (item == null) {
+                item = new CartItem();
+                item.setUserId(userId);
+                item.setProductId(product.getId());
+                byProduct.put(product.getId(), item);
+                operation.setMessage("添加到购物车成功");
+            } else {
+                operation.setMessage("更新购物车成功");
+            }
+            item.setQuantity((int) newQuantity);
+            return null;
+        }
+        if ("update".equals(op)) {
+            if (operation.getId() == null || quantity == null) {
+                return "参数不完整";
+            }
+            if (quantity <= 0) {
+                return "商品数量必须大于0";
+            }
+            CartItem item = byId.get(operation.getId());
+            if (item == null) {
+                return "购物车项不存在";
+            }
+            Product product = products.get(item.getProductId());
+            String error = check(product);
+            if (error != null) {
+                return error;
+            }
+            if (product.getStock() < quantity) {
+                return "商品库存不足";
+            }
+            item.setQuantity(quantity);
+            operation.setMessage("更新购物车成功");
+            return null;
+        }
+        if ("remove".equals(op)) {
+            if (operation.getId() == null) {
+                return "参数不完整";
+            }
+            CartItem item = byId.remove(operation.getId());
+            if (item == null) {
+                return "购物车项不存在";
+            }
+            byProduct.remove(item.getProductId());
+            operation.setMessage("删除购物车项成功");
+            return null;
+        }
+        return "操作类型不正确";
+    }
+
+    private static String check(Product product) {
+        if (product == null) {
+            return "商品不存在";
+        }
+        if (product.getStatus() != 1) {
+            return "商品已下架";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.shop.service;
+
+import com.shop.dao.CartItemDao;
+import com.shop.dao.ProductDao;
+import com.shop.model.CartItem;
+import com.shop.model.CartOperation;
+import com.shop.model.Product;
+import com.shop.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 批量购物车操作（客户端恢复保存的购物车等）：多行加入/修改/删除一次提交，每行单独返回结果
+// 开启写回缓存时在内存中整批执行；否则在一个事务内锁定该用户的购物车行，删除、修改、新增各用一次 JDBC 批量写入
+public class CartBatchService {
+    private final CartItemDao cartItemDao = new CartItemDao();
+    private final ProductDao productDao = new ProductDao();
+
+    // 每行的 success / message 在 operations 上填入；返回执行后的购物车
+    public List<CartItem> apply(Long userId, List<CartOperation> operations) throws SQLException {
+        if (CartStore.isEnabled()) {
+            // 商品在购物车锁外查询；期间购物车又加入了其他商品时补查这些商品后重试
+            Set<Long> ids = addedProductIds(operations);
+            ids.addAll(CartStore.productIds(userId));
+            Map<Long, Product> products = new HashMap<>();
+            do {
+                loadProducts(products, ids);
+                ids = CartStore.applyBatch(userId, operations, products);
+            } while (!ids.isEmpty());
+            return CartStore.findByUserId(userId);
+        }
+
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            cartItemDao.lockByUserId(conn, userId);
+            List<CartItem> current = cartItemDao.findByUserId(conn, userId);
+            Set<Long> ids = addedProductIds(operations);
+            for (CartItem item : current) {
+                ids.add(item.getProductId());
+            }
+            Map<Long, Product> products = new HashMap<>();
+            loadProducts(products, ids);
+            CartBatch batch = CartBatch.plan(userId, current, operations, products);
+            if (batch.isEmpty()) {
+                conn.rollback();
+                return current;
+            }
+
+            // 先删除再新增：删除后又加入的商品不会与旧行冲突
+            cartItemDao.delete(conn, batch.deletes);
+            cartItemDao.updateQuantities(conn, batch.updates);
+            cartItemDao.insert(conn, batch.inserts);
+            List<CartItem> items = cartItemDao.findByUserId(conn, userId);
+            conn.commit();
+            return items;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+    }
+
+    private Set<Long> addedProductIds(List<CartOperation> operations) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CartOperation operation : operations) {
+            if ("add".equals(operation.getOp()) && operation.getProductId() != null) {
+                ids.add(operation.getProductId());
+            }
+        }
+        return ids;
+    }
+
+    // 一次从商品目录缓存取出；不存在的商品记为 null，重试时不再查询
+    private void loadProducts(Map<Long, Product> products, Set<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (Long id : ids) {
+            products.put(id, null);
+        }
+        for (Product product : productDao.findByIds(new ArrayList<>(ids))) {
+            products.put(product.getId(), product);
+        }
+    }
+}
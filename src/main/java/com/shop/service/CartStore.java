@@ -0,0 +1,679 @@
+package com.shop.service;
+
+import com.shop.dao.CartItemDao;
+import com.shop.dao.ProductDao;
+import com.shop.model.CartItem;
+import com.shop.model.CartOperation;
+import com.shop.model.Product;
+import com.shop.util.ConfigUtil;
+import com.shop.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 购物车写回缓存：每个用户的购物车在内存中读写，修改记录为待写回的ID，后台定时合并成批写回 cart_items
+// 同一购物车项在两次写回之间的多次修改只写一次；下单前同步写回并暂停该购物车的后台写回，下单事务读到的是最新内容
+// 购物车项ID在内存中分配（启动时取 MAX(id)），购物车只能由本节点读写，只能在单节点部署时开启（cart.writeBehind=true）
+// 默认关闭，此时所有方法直接读写数据库，与原来的行为一致
+public class CartStore {
+    private static final CartItemDao cartItemDao = new CartItemDao();
+    private static final ProductDao productDao = new ProductDao();
+
+    private static final Map<Long, Cart> CARTS = new ConcurrentHashMap<>();
+    // 有待写回修改的用户
+    private static final Set<Long> DIRTY = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder LOADS = new LongAdder();
+    private static final LongAdder WRITES = new LongAdder();
+    private static final LongAdder FLUSHED_ROWS = new LongAdder();
+    private static final LongAdder FLUSHES = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private static int maxCarts;
+    private static long idleMillis;
+    private static int batchSize;
+    private static volatile boolean enabled;
+    private static ScheduledExecutorService flusher;
+
+    private static class Cart {
+        final Long userId;
+        // 购物车项ID -> 购物车项（不含商品信息），按加入顺序
+        final Map<Long, CartItem> items = new LinkedHashMap<>();
+        final Set<Long> upserts = new LinkedHashSet<>();
+        final Set<Long> deletes = new LinkedHashSet<>();
+        // 写回期间持有，保证同一购物车的写回按顺序提交
+        final ReentrantLock flushLock = new ReentrantLock();
+        volatile long lastAccess = System.currentTimeMillis();
+        // 已从 CARTS 移除，持有旧引用的请求需要重新获取
+        boolean evicted;
+
+        Cart(Long userId) {
+            this.userId = userId;
+        }
+
+        boolean isClean() {
+            return upserts.isEmpty() && deletes.isEmpty();
+        }
+    }
+
+    // 一批待写回的修改
+    private static class Pending {
+        final Cart cart;
+        final List<CartItem> upserts = new ArrayList<>();
+        final List<CartItem> deletes = new ArrayList<>();
+
+        Pending(Cart cart) {
+            this.cart = cart;
+        }
+    }
+
+    @FunctionalInterface
+    private interface CartAction<T> {
+        T apply(Cart cart);
+    }
+
+    // 由 DataSourceListener 在连接池启动后调用
+    public static synchronized void start() throws SQLException {
+        if (flusher != null || !ConfigUtil.getBoolean("cart.writeBehind", false)) {
+            return;
+        }
+        maxCarts = ConfigUtil.getInt("cart.maxCarts", 10000);
+        idleMillis = ConfigUtil.getLong("cart.idleMillis", 1800000);
+        batchSize = ConfigUtil.getInt("cart.flushBatchSize", 500);
+        long interval = ConfigUtil.getLong("cart.flushIntervalMillis", 500);
+
+        NEXT_ID.set(cartItemDao.maxId());
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flushDirty();
+                evictIdle();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        enabled = true;
+    }
+
+    // 停止后台写回并写回全部剩余修改
+    public static synchronized void stop() {
+        if (flusher == null) {
+            return;
+        }
+        enabled = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushDirty();
+        flusher = null;
+        CARTS.clear();
+        DIRTY.clear();
+    }
+
+    // 返回副本，商品信息取自商品目录缓存；已删除的商品只保留ID
+    public static List<CartItem> findByUserId(Long userId) throws SQLException {
+        if (!enabled) {
+            return cartItemDao.findByUserId(userId);
+        }
+        List<CartItem> items = withCart(userId, cart -> copies(cart.items.values()));
+        List<Long> productIds = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            productIds.add(item.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productDao.findByIds(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (CartItem item : items) {
+            item.setProduct(product(products.get(item.getProductId()), item.getProductId()));
+        }
+        return items;
+    }
+
+    public static CartItem findById(Long id, Long userId) throws SQLException {
+        if (!enabled) {
+            return cartItemDao.findById(id, userId);
+        }
+        CartItem item = withCart(userId, cart -> copy(cart.items.get(id)));
+        return withProduct(item);
+    }
+
+    // 加入购物车：已有该商品时累加数量，累加后超过 product 的库存时不修改，返回 null
+    // 查找与新增/累加在购物车的锁内完成，重复提交不会产生两条购物车项；返回的副本不含商品信息
+    public static CartItem add(Long userId, Product product, int quantity) throws SQLException {
+        // 单次数量超过库存时直接拒绝，不依赖调用方预先检查
+        if (quantity <= 0 || quantity > product.getStock()) {
+            return null;
+        }
+        if (!enabled) {
+            return cartItemDao.add(userId, product.getId(), quantity);
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+        return withCart(userId, cart -> {
+            CartItem stored = null;
+            for (CartItem existing : cart.items.values()) {
+                if (existing.getProductId().equals(product.getId())) {
+                    stored = existing;
+                    break;
+                }
+            }
+            // 按 long 累加，已有数量加上新数量不会溢出成负数而绕过库存检查
+            long newQuantity = (long) (stored != null ? stored.getQuantity() : 0) + quantity;
+            if (newQuantity > product.getStock()) {
+                return null;
+            }
+            if (stored == null) {
+                stored = new CartItem();
+                stored.setId(NEXT_ID.incrementAndGet());
+                stored.setUserId(userId);
+                stored.setProductId(product.getId());
+                stored.setCreatedAt(now);
+                cart.items.put(stored.getId(), stored);
+            }
+            stored.setQuantity((int) newQuantity);
+            stored.setUpdatedAt(now);
+            markUpsert(cart, stored.getId());
+            return copy(stored);
+        });
+    }
+
+    // 只更新数量，购物车项不存在时忽略
+    public static void update(CartItem cartItem) throws SQLException {
+        if (!enabled) {
+            cartItemDao.update(cartItem);
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+        withCart(cartItem.getUserId(), cart -> {
+            CartItem stored = cart.items.get(cartItem.getId());
+            if (stored != null) {
+                stored.setQuantity(cartItem.getQuantity());
+                stored.setUpdatedAt(now);
+                cartItem.setUpdatedAt(now);
+                markUpsert(cart, stored.getId());
+            }
+            return null;
+        });
+    }
+
+    public static void delete(Long id, Long userId) throws SQLException {
+        if (!enabled) {
+            cartItemDao.delete(id, userId);
+            return;
+        }
+        withCart(userId, cart -> {
+            if (cart.items.remove(id) != null) {
+                markDelete(cart, id);
+            }
+            return null;
+        });
+    }
+
+    // 批量操作：在购物车的锁内按 CartBatch 执行全部行，整批同时生效，稍后合并写回
+    // products 需包含加入的商品和购物车中已有的商品
+    // 返回 products 中还没有的购物车商品ID（查询到之后购物车中又加入的商品），此时不执行任何操作，由调用方补查后重试
+    static Set<Long> applyBatch(Long userId, List<CartOperation> operations, Map<Long, Product> products) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+        return withCart(userId, cart -> {
+            Set<Long> missing = new HashSet<>();
+            for (CartItem item : cart.items.values()) {
+                if (!products.containsKey(item.getProductId())) {
+                    missing.add(item.getProductId());
+                }
+            }
+            if (!missing.isEmpty()) {
+                return missing;
+            }
+            CartBatch batch = CartBatch.plan(userId, cart.items.values(), operations, products);
+            for (CartItem item : batch.deletes) {
+                cart.items.remove(item.getId());
+                markDelete(cart, item.getId());
+            }
+            for (CartItem item : batch.updates) {
+                CartItem stored = cart.items.get(item.getId());
+                stored.setQuantity(item.getQuantity());
+                stored.setUpdatedAt(now);
+                markUpsert(cart, stored.getId());
+            }
+            for (CartItem item : batch.inserts) {
+                item.setId(NEXT_ID.incrementAndGet());
+                item.setCreatedAt(now);
+                item.setUpdatedAt(now);
+                cart.items.put(item.getId(), item);
+                markUpsert(cart, item.getId());
+            }
+            return missing;
+        });
+    }
+
+    // 购物车中的商品ID，不查询商品信息
+    static Set<Long> productIds(Long userId) throws SQLException {
+        return withCart(userId, cart -> {
+            Set<Long> ids = new HashSet<>();
+            for (CartItem item : cart.items.values()) {
+                ids.add(item.getProductId());
+            }
+            return ids;
+        });
+    }
+
+    // 下单前调用：同步写回该用户的全部修改，并在 endCheckout 之前暂停该购物车的后台写回
+    // 返回后下单事务从数据库读到的购物车与内存一致；调用方必须在 finally 中调用 endCheckout
+    public static void beginCheckout(Long userId) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        Cart cart;
+        while (true) {
+            cart = loadCart(userId);
+            cart.flushLock.lock();
+            // 持有 flushLock 后购物车不会再被淘汰
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    break;
+                }
+            }
+            cart.flushLock.unlock();
+        }
+        Pending pending = take(cart);
+        if (pending == null) {
+            return;
+        }
+        List<Pending> batch = new ArrayList<>();
+        batch.add(pending);
+        try {
+            write(batch);
+            FLUSHES.increment();
+        } catch (SQLException | RuntimeException e) {
+            FAILURES.increment();
+            requeue(pending);
+            cart.flushLock.unlock();
+            throw e;
+        }
+    }
+
+    // orderedIds 为下单事务中已删除的购物车项，下单失败时传 null
+    public static void endCheckout(Long userId, List<Long> orderedIds) {
+        if (!enabled) {
+            return;
+        }
+        Cart cart = CARTS.get(userId);
+        if (cart == null || !cart.flushLock.isHeldByCurrentThread()) {
+            return;
+        }
+        try {
+            if (orderedIds != null) {
+                synchronized (cart) {
+                    for (Long id : orderedIds) {
+                        cart.items.remove(id);
+                        cart.upserts.remove(id);
+                        cart.deletes.remove(id);
+                    }
+                }
+            }
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("carts", CARTS.size());
+        stats.put("maxCarts", maxCarts);
+        stats.put("dirtyCarts", DIRTY.size());
+        stats.put("hits", HITS.sum());
+        stats.put("loads", LOADS.sum());
+        stats.put("writes", WRITES.sum());
+        stats.put("flushes", FLUSHES.sum());
+        stats.put("flushedRows", FLUSHED_ROWS.sum());
+        stats.put("failures", FAILURES.sum());
+        stats.put("dropped", DROPPED.sum());
+        stats.put("evictions", EVICTIONS.sum());
+        return stats;
+    }
+
+    private static void markUpsert(Cart cart, Long id) {
+        cart.upserts.add(id);
+        WRITES.increment();
+        DIRTY.add(cart.userId);
+    }
+
+    private static void markDelete(Cart cart, Long id) {
+        cart.upserts.remove(id);
+        cart.deletes.add(id);
+        WRITES.increment();
+        DIRTY.add(cart.userId);
+    }
+
+    // 在购物车锁内执行；购物车恰好被淘汰时重新加载
+    private static <T> T withCart(Long userId, CartAction<T> action) throws SQLException {
+        while (true) {
+            Cart cart = loadCart(userId);
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    private static Cart loadCart(Long userId) throws SQLException {
+        Cart cart = CARTS.get(userId);
+        if (cart != null) {
+            HITS.increment();
+            return cart;
+        }
+        // 不在内存中的购物车没有待写回的修改，以数据库为准
+        Cart loaded = new Cart(userId);
+        for (CartItem item : cartItemDao.findByUserId(userId)) {
+            item.setProduct(null);
+            loaded.items.put(item.getId(), item);
+        }
+        LOADS.increment();
+        cart = CARTS.putIfAbsent(userId, loaded);
+        return cart != null ? cart : loaded;
+    }
+
+    // 后台写回：每批最多 batchSize 行，在一个事务中提交
+    private static void flushDirty() {
+        List<Pending> batch = new ArrayList<>();
+        List<Cart> locked = new ArrayList<>();
+        int rows = 0;
+        try {
+            for (Long userId : DIRTY) {
+                DIRTY.remove(userId);
+                Cart cart = CARTS.get(userId);
+                // 正在下单的购物车由下单流程写回
+                if (cart == null || !cart.flushLock.tryLock()) {
+                    if (cart != null) {
+                        DIRTY.add(userId);
+                    }
+                    continue;
+                }
+                locked.add(cart);
+                Pending pending = take(cart);
+                if (pending == null) {
+                    continue;
+                }
+                batch.add(pending);
+                rows += pending.upserts.size() + pending.deletes.size();
+                if (rows >= batchSize) {
+                    writeQuietly(batch);
+                    unlockAll(locked);
+                    batch.clear();
+                    rows = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeQuietly(batch);
+            }
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    private static void unlockAll(List<Cart> locked) {
+        for (Cart cart : locked) {
+            cart.flushLock.unlock();
+        }
+        locked.clear();
+    }
+
+    // 取出购物车的待写回修改，没有修改时返回 null；调用方须持有 flushLock
+    private static Pending take(Cart cart) {
+        synchronized (cart) {
+            if (cart.isClean()) {
+                return null;
+            }
+            Pending pending = new Pending(cart);
+            for (Long id : cart.upserts) {
+                CartItem item = cart.items.get(id);
+                if (item != null) {
+                    pending.upserts.add(copy(item));
+                }
+            }
+            for (Long id : cart.deletes) {
+                CartItem item = new CartItem();
+                item.setId(id);
+                item.setUserId(cart.userId);
+                pending.deletes.add(item);
+            }
+            cart.upserts.clear();
+            cart.deletes.clear();
+            return pending;
+        }
+    }
+
+    private static void writeQuietly(List<Pending> batch) {
+        try {
+            write(batch);
+            FLUSHES.increment();
+        } catch (SQLException e) {
+            FAILURES.increment();
+            if (!isConstraintViolation(e)) {
+                // 数据库不可用等，全部放回，下一轮重试
+                e.printStackTrace();
+                batch.forEach(CartStore::requeue);
+                return;
+            }
+            // 个别项违反约束（如商品已被删除）导致整批失败，逐项重试找出这些项
+            for (Pending pending : batch) {
+                retryItems(pending);
+            }
+        }
+    }
+
+    private static void write(List<Pending> batch) throws SQLException {
+        List<CartItem> upserts = new ArrayList<>();
+        List<CartItem> deletes = new ArrayList<>();
+        for (Pending pending : batch) {
+            upserts.addAll(pending.upserts);
+            deletes.addAll(pending.deletes);
+        }
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            if (!deletes.isEmpty()) {
+                cartItemDao.delete(conn, deletes);
+            }
+            if (!upserts.isEmpty()) {
+                cartItemDao.upsert(conn, upserts);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+        }
+        FLUSHED_ROWS.add(upserts.size() + deletes.size());
+    }
+
+    // 逐行写回；违反约束的新增/修改（商品已被删除，购物车项已随之级联删除）从内存中移除，与数据库保持一致
+    private static void retryItems(Pending pending) {
+        List<Pending> singles = new ArrayList<>();
+        for (CartItem item : pending.deletes) {
+            Pending single = new Pending(pending.cart);
+            single.deletes.add(item);
+            singles.add(single);
+        }
+        for (CartItem item : pending.upserts) {
+            Pending single = new Pending(pending.cart);
+            single.upserts.add(item);
+            singles.add(single);
+        }
+        for (Pending single : singles) {
+            List<Pending> batch = new ArrayList<>();
+            batch.add(single);
+            try {
+                write(batch);
+            } catch (SQLException e) {
+                if (isConstraintViolation(e) && !single.upserts.isEmpty()) {
+                    Cart cart = pending.cart;
+                    Long id = single.upserts.get(0).getId();
+                    synchronized (cart) {
+                        cart.items.remove(id);
+                        cart.upserts.remove(id);
+                    }
+                    DROPPED.increment();
+                } else {
+                    e.printStackTrace();
+                    requeue(single);
+                }
+            }
+        }
+    }
+
+    // 写回失败的修改放回购物车，期间又有新修改的以新修改为准
+    private static void requeue(Pending pending) {
+        Cart cart = pending.cart;
+        synchronized (cart) {
+            for (CartItem item : pending.upserts) {
+                if (cart.items.containsKey(item.getId())) {
+                    cart.upserts.add(item.getId());
+                }
+            }
+            for (CartItem item : pending.deletes) {
+                if (!cart.items.containsKey(item.getId())) {
+                    cart.deletes.add(item.getId());
+                }
+            }
+        }
+        DIRTY.add(cart.userId);
+    }
+
+    // SQLState 23xxx 为违反完整性约束，批量执行时原因可能在 getNextException / getCause 中
+    private static boolean isConstraintViolation(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException next = (SQLException) t; next != null; next = next.getNextException()) {
+                    if (next.getSQLState() != null && next.getSQLState().startsWith("23")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // 淘汰空闲购物车；超出容量时按最近访问时间淘汰，有待写回修改或正在下单的购物车保留
+    private static void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<Cart> candidates = new ArrayList<>();
+        for (Cart cart : CARTS.values()) {
+            if (now - cart.lastAccess > idleMillis) {
+                evict(cart);
+            } else {
+                candidates.add(cart);
+            }
+        }
+        int excess = CARTS.size() - maxCarts;
+        if (excess <= 0) {
+            return;
+        }
+        candidates.sort(Comparator.comparingLong(cart -> cart.lastAccess));
+        for (Cart cart : candidates) {
+            if (excess <= 0) {
+                break;
+            }
+            if (evict(cart)) {
+                excess--;
+            }
+        }
+    }
+
+    private static boolean evict(Cart cart) {
+        if (!cart.flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            synchronized (cart) {
+                if (!cart.isClean()) {
+                    return false;
+                }
+                cart.evicted = true;
+                CARTS.remove(cart.userId, cart);
+            }
+            EVICTIONS.increment();
+            return true;
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    private static CartItem withProduct(CartItem item) throws SQLException {
+        if (item != null) {
+            item.setProduct(product(productDao.findById(item.getProductId()), item.getProductId()));
+        }
+        return item;
+    }
+
+    // 与原来 LEFT JOIN 的结果一致：商品已删除时只有ID
+    private static Product product(Product product, Long productId) {
+        if (product != null) {
+            return product;
+        }
+        Product missing = new Product();
+        missing.setId(productId);
+        missing.setStock(0);
+        missing.setStatus(0);
+        return missing;
+    }
+
+    private static List<CartItem> copies(Iterable<CartItem> items) {
+        List<CartItem> result = new ArrayList<>();
+        for (CartItem item : items) {
+            result.add(copy(item));
+        }
+        return result;
+    }
+
+    static CartItem copy(CartItem source) {
+        if (source == null) {
+            return null;
+        }
+        CartItem item = new CartItem();
+        item.setId(source.getId());
+        item.setUserId(source.getUserId());
+        item.setProductId(source.getProductId());
+        item.setQuantity(source.getQuantity());
+        item.setCreatedAt(source.getCreatedAt());
+        item.setUpdatedAt(source.getUpdatedAt());
+        return item;
+    }
+}
@@ -0,0 +1,196 @@
+package com.shop.service;
+
+import com.shop.dao.CartItemDao;
+import com.shop.dao.OrderDao;
+import com.shop.dao.ProductDao;
+import com.shop.dao.StockReservationDao;
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.OrderItem;
+import com.shop.model.Product;
+import com.shop.model.Result;
+import com.shop.util.CountCache;
+import com.shop.util.DatabaseUtil;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 下单流程：读取购物车、扣减库存、保存订单、清空购物车在同一连接、同一事务中完成
+// 数据库往返次数固定（读购物车、批量扣库存、写订单、批量写订单项、删购物车、提交），与商品数量无关
+public class CheckoutService {
+    private final OrderDao orderDao = new OrderDao();
+    private final ProductDao productDao = new ProductDao();
+    private final CartItemDao cartItemDao = new CartItemDao();
+    private final StockReservationDao reservationDao = new StockReservationDao();
+
+    // order 需已填好订单号、用户和收货信息；失败时返回 400 及原因，事务已回滚
+    public Result<Order> checkoutCart(Order order) throws SQLException {
+        Connection conn = null;
+        // 已在内存中占用的秒杀库存，事务未提交时退回
+        List<OrderItem> reserved = new ArrayList<>();
+        List<OrderItem> stockItems = new ArrayList<>();
+        List<Long> cartItemIds = new ArrayList<>();
+        boolean committed = false;
+
+        // 写回内存中的购物车修改，下单结束前暂停该购物车的后台写回
+        CartStore.beginCheckout(order.getUserId());
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            List<CartItem> cartItems = cartItemDao.findByUserId(conn, order.getUserId());
+            if (cartItems.isEmpty()) {
+                conn.rollback();
+                return Result.error(400, "购物车为空");
+            }
+
+            // 价格和名称取自事务内读到的商品，库存以扣减结果为准
+            List<OrderItem> orderItems = new ArrayList<>();
+            Map<Long, String> productNames = new HashMap<>();
+            BigDecimal totalAmount = BigDecimal.ZERO;
+
+            for (CartItem cartItem : cartItems) {
+                Product product = cartItem.getProduct();
+                if (product == null || product.getPrice() == null) {
+                    conn.rollback();
+                    return Result.error(400, "商品不存在");
+                }
+                productNames.put(cartItem.getProductId(), product.getName());
+                cartItemIds.add(cartItem.getId());
+
+                OrderItem orderItem = new OrderItem();
+                orderItem.setProductId(cartItem.getProductId());
+                orderItem.setPrice(product.getPrice());
+                orderItem.setQuantity(cartItem.getQuantity());
+                orderItems.add(orderItem);
+
+                totalAmount = totalAmount.add(product.getPrice().multiply(new BigDecimal(cartItem.getQuantity())));
+            }
+
+            // 秒杀商品在内存中扣减，其余商品在数据库中条件扣减
+            for (OrderItem item : orderItems) {
+                if (!FlashSaleInventory.isManaged(item.getProductId())) {
+                    stockItems.add(item);
+                } else if (FlashSaleInventory.tryReserve(item.getProductId(), item.getQuantity())) {
+                    reserved.add(item);
+                } else {
+                    conn.rollback();
+                    return Result.error(400, "商品" + productNames.get(item.getProductId()) + "库存不足");
+                }
+            }
+
+            if (!stockItems.isEmpty()) {
+                List<OrderItem> failed = productDao.decreaseStock(conn, stockItems);
+                if (!failed.isEmpty()) {
+                    conn.rollback();
+                    return Result.error(400, "商品" + productNames.get(failed.get(0).getProductId()) + "库存不足");
+                }
+            }
+
+            order.setTotalAmount(totalAmount);
+            order.setItems(orderItems);
+            orderDao.insert(conn, order);
+            if (!reserved.isEmpty()) {
+                reservationDao.insert(conn, order.getId(), reserved);
+            }
+
+            // 只删除本次下单的购物车项；行数不符说明购物车已被并发下单处理过
+            if (cartItemDao.deleteByIds(conn, order.getUserId(), cartItemIds) != cartItemIds.size()) {
+                conn.rollback();
+                return Result.error(400, "购物车已变化，请刷新后重试");
+            }
+
+            conn.commit();
+            committed = true;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+            if (!committed) {
+                FlashSaleInventory.release(reserved);
+            }
+            CartStore.endCheckout(order.getUserId(), committed ? cartItemIds : null);
+        }
+
+        productDao.evictStock(stockItems);
+        CountCache.invalidate("orders");
+        return Result.success("订单创建成功", order);
+    }
+
+    // 直接购买单个商品：扣减库存与保存订单在同一事务中完成
+    public Result<Order> checkoutProduct(Order order, Long productId, int quantity) throws SQLException {
+        Product product = productDao.findById(productId);
+        if (product == null) {
+            return Result.error(400, "商品不存在");
+        }
+
+        // 提前失败，最终以扣减结果为准
+        if (!FlashSaleInventory.isManaged(productId) && product.getStock() < quantity) {
+            return Result.error(400, "商品库存不足");
+        }
+
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProductId(product.getId());
+        orderItem.setPrice(product.getPrice());
+        orderItem.setQuantity(quantity);
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        orderItems.add(orderItem);
+        order.setItems(orderItems);
+        order.setTotalAmount(product.getPrice().multiply(new BigDecimal(quantity)));
+
+        if (FlashSaleInventory.isManaged(productId)) {
+            return checkoutFlashSale(order, orderItem);
+        }
+        if (!orderDao.saveWithStock(order).isEmpty()) {
+            return Result.error(400, "商品库存不足");
+        }
+        return Result.success("订单创建成功", order);
+    }
+
+    // 秒杀商品：库存在内存中占用，订单与扣减流水在同一事务中提交，不锁 products 行
+    private Result<Order> checkoutFlashSale(Order order, OrderItem orderItem) throws SQLException {
+        if (!FlashSaleInventory.tryReserve(orderItem.getProductId(), orderItem.getQuantity())) {
+            return Result.error(400, "商品库存不足");
+        }
+
+        Connection conn = null;
+        boolean committed = false;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+
+            orderDao.insert(conn, order);
+            reservationDao.insert(conn, order.getId(), order.getItems());
+
+            conn.commit();
+            committed = true;
+        } catch (SQLException e) {
+            DatabaseUtil.rollback(conn);
+            throw e;
+        } finally {
+            DatabaseUtil.release(conn);
+            if (!committed) {
+                FlashSaleInventory.release(orderItem.getProductId(), orderItem.getQuantity());
+            }
+        }
+
+        CountCache.invalidate("orders");
+        return Result.success("订单创建成功", order);
+    }
+
+    // 取消待付款订单并恢复库存；秒杀商品同时退回内存库存
+    public boolean cancel(Order order) throws SQLException {
+        if (!orderDao.cancel(order)) {
+            return false;
+        }
+        FlashSaleInventory.release(order.getItems());
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package com.shop.service;
+
+import com.shop.dao.StockReservationDao;
+import com.shop.model.OrderItem;
+import com.shop.util.CatalogCache;
+import com.shop.util.ConfigUtil;
+import com.shop.util.StripedStock;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 秒杀库存：活动商品的库存在内存中用分段计数器扣减，下单时不再锁 products 行
+// 扣减流水随订单提交，后台定时批量合并到数据库；启动时先合并遗留流水再加载库存
+public class FlashSaleInventory {
+    private static final Map<Long, StripedStock> STOCKS = new ConcurrentHashMap<>();
+    private static final StockReservationDao reservationDao = new StockReservationDao();
+
+    private static final LongAdder ADMITTED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder FLUSHED = new LongAdder();
+
+    private static ScheduledExecutorService flusher;
+
+    // 由 DataSourceListener 在连接池启动后调用
+    public static synchronized void start() throws SQLException {
+        if (flusher != null || !ConfigUtil.getBoolean("flashsale.enabled", false)) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>();
+        for (String id : ConfigUtil.get("flashsale.productIds", "").split(",")) {
+            if (!id.trim().isEmpty()) {
+                productIds.add(Long.parseLong(id.trim()));
+            }
+        }
+        int stripes = ConfigUtil.getInt("flashsale.stripes", Runtime.getRuntime().availableProcessors() * 2);
+        long interval = ConfigUtil.getLong("flashsale.flushIntervalMillis", 200);
+
+        // 对账：上次停机前未合并的流水先扣到数据库，此后数据库库存即真实剩余库存
+        flush();
+        for (Map.Entry<Long, Integer> entry : reservationDao.findStock(productIds).entrySet()) {
+            STOCKS.put(entry.getKey(), new StripedStock(Math.max(0, entry.getValue()), stripes));
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flash-sale-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (SQLException e) {
+                // 流水仍在表中，下一轮重试
+                e.printStackTrace();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            // 未合并的流水在下次启动时对账
+            e.printStackTrace();
+        }
+        flusher = null;
+        STOCKS.clear();
+    }
+
+    public static boolean isManaged(Long productId) {
+        return STOCKS.containsKey(productId);
+    }
+
+    // 在内存中占用库存，不访问数据库；订单未能提交时须调用 release 退回
+    public static boolean tryReserve(Long productId, int quantity) {
+        StripedStock stock = STOCKS.get(productId);
+        if (stock != null && stock.tryAcquire(quantity)) {
+            ADMITTED.increment();
+            return true;
+        }
+        REJECTED.increment();
+        return false;
+    }
+
+    public static void release(Long productId, int quantity) {
+        StripedStock stock = STOCKS.get(productId);
+        if (stock != null) {
+            stock.release(quantity);
+        }
+    }
+
+    // 订单取消后退回活动商品的库存（数据库库存已由取消事务恢复）
+    public static void release(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            release(item.getProductId(), item.getQuantity());
+        }
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<Long, Long> available = new LinkedHashMap<>();
+        STOCKS.forEach((id, stock) -> available.put(id, stock.available()));
+        stats.put("enabled", flusher != null);
+        stats.put("available", available);
+        stats.put("admitted", ADMITTED.sum());
+        stats.put("rejected", REJECTED.sum());
+        stats.put("flushedUnits", FLUSHED.sum());
+        return stats;
+    }
+
+    private static void flush() throws SQLException {
+        Map<Long, Integer> applied = reservationDao.flush();
+        applied.forEach((productId, quantity) -> {
+            FLUSHED.add(quantity);
+            CatalogCache.evict(productId);
+        });
+    }
+}
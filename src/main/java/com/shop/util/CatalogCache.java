@@ -0,0 +1,226 @@
+package com.shop.util;
+
+import com.shop.model.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 商品目录缓存：按ID缓存商品，按分类缓存商品ID列表（created_at 倒序）
+// 商品增删改时失效，库存变化直接写入缓存；对外只返回副本，调用方修改不会污染缓存
+// 缓存的商品不含分类信息，由 ProductDao 从 CategoryCache 填充，分类变更不影响本缓存
+public class CatalogCache {
+    private static final int MAX_PRODUCTS = ConfigUtil.getInt("catalog.maxProducts", 10000);
+    private static final int MAX_CATEGORY_LISTS = ConfigUtil.getInt("catalog.maxCategoryLists", 256);
+    private static final Long ALL_CATEGORIES = -1L;
+
+    private static final Map<Long, Product> PRODUCTS = new ConcurrentHashMap<>();
+    // 淘汰顺序队列，失效时不从队列中删除（避免线性扫描），过长时按当前内容重建
+    private static final ConcurrentLinkedQueue<Long> INSERTION_ORDER = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger QUEUED = new AtomicInteger();
+    private static final Map<Long, List<Long>> CATEGORY_IDS = new ConcurrentHashMap<>();
+    // 每次写操作递增，加载期间版本变化的结果不写入缓存
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final LongAdder LIST_HITS = new LongAdder();
+    private static final LongAdder LIST_MISSES = new LongAdder();
+
+    @FunctionalInterface
+    public interface ProductLoader {
+        Product load(Long id) throws SQLException;
+    }
+
+    // 按分类加载商品，categoryId 为 null 表示全部，结果须按 created_at DESC, id DESC 排序
+    @FunctionalInterface
+    public interface CategoryLoader {
+        List<Product> load(Long categoryId) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface BatchLoader {
+        List<Product> load(List<Long> ids) throws SQLException;
+    }
+
+    public static Product get(Long id, ProductLoader loader) throws SQLException {
+        Product cached = PRODUCTS.get(id);
+        if (cached != null) {
+            HITS.increment();
+            return copy(cached);
+        }
+        MISSES.increment();
+
+        long version = VERSION.get();
+        Product product = loader.load(id);
+        if (product != null && VERSION.get() == version) {
+            put(product);
+        }
+        return product;
+    }
+
+    public static List<Product> getCategory(Long categoryId, CategoryLoader loader, BatchLoader batchLoader) throws SQLException {
+        Long key = categoryId != null ? categoryId : ALL_CATEGORIES;
+        List<Long> ids = CATEGORY_IDS.get(key);
+        if (ids == null) {
+            LIST_MISSES.increment();
+            long version = VERSION.get();
+            List<Product> products = loader.load(categoryId);
+            if (VERSION.get() == version) {
+                List<Long> loadedIds = new ArrayList<>(products.size());
+                for (Product product : products) {
+                    loadedIds.add(product.getId());
+                    put(product);
+                }
+                if (CATEGORY_IDS.size() >= MAX_CATEGORY_LISTS) {
+                    CATEGORY_IDS.clear();
+                }
+                CATEGORY_IDS.put(key, loadedIds);
+            }
+            List<Product> result = new ArrayList<>(products.size());
+            for (Product product : products) {
+                result.add(copy(product));
+            }
+            return result;
+        }
+        LIST_HITS.increment();
+        return getAll(ids, batchLoader);
+    }
+
+    // 按给定顺序返回商品，缓存中缺失的一次批量补回；已不存在的商品跳过
+    public static List<Product> getAll(List<Long> ids, BatchLoader batchLoader) throws SQLException {
+        List<Product> result = new ArrayList<>(ids.size());
+        List<Long> missing = null;
+        for (Long id : ids) {
+            Product cached = PRODUCTS.get(id);
+            if (cached == null) {
+                if (missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(id);
+            }
+        }
+        Map<Long, Product> reloaded = new HashMap<>();
+        if (missing != null) {
+            long version = VERSION.get();
+            for (Product product : batchLoader.load(missing)) {
+                reloaded.put(product.getId(), product);
+            }
+            if (VERSION.get() == version) {
+                reloaded.values().forEach(CatalogCache::put);
+            }
+        }
+        for (Long id : ids) {
+            Product product = PRODUCTS.get(id);
+            if (product == null) {
+                product = reloaded.get(id);
+            }
+            if (product != null) {
+                result.add(copy(product));
+            }
+        }
+        return result;
+    }
+
+    // 商品新增、修改、删除后调用
+    public static void invalidate(Long productId) {
+        VERSION.incrementAndGet();
+        if (productId != null) {
+            PRODUCTS.remove(productId);
+        }
+        CATEGORY_IDS.clear();
+    }
+
+    // 只移除单个商品，分类列表保留，下次组装列表时批量补回
+    public static void evict(Long productId) {
+        VERSION.incrementAndGet();
+        PRODUCTS.remove(productId);
+    }
+
+    // 库存变化不影响列表结构，直接更新缓存中的库存
+    public static void updateStock(Long productId, int stock) {
+        VERSION.incrementAndGet();
+        Product cached = PRODUCTS.get(productId);
+        if (cached != null) {
+            cached.setStock(stock);
+        }
+    }
+
+    public static void clear() {
+        VERSION.incrementAndGet();
+        PRODUCTS.clear();
+        synchronized (INSERTION_ORDER) {
+            INSERTION_ORDER.clear();
+            QUEUED.set(0);
+        }
+        CATEGORY_IDS.clear();
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", PRODUCTS.size());
+        stats.put("maxProducts", MAX_PRODUCTS);
+        stats.put("categoryLists", CATEGORY_IDS.size());
+        stats.put("hits", HITS.sum());
+        stats.put("misses", MISSES.sum());
+        stats.put("evictions", EVICTIONS.sum());
+        stats.put("listHits", LIST_HITS.sum());
+        stats.put("listMisses", LIST_MISSES.sum());
+        return stats;
+    }
+
+    private static void put(Product product) {
+        if (PRODUCTS.put(product.getId(), product) == null) {
+            INSERTION_ORDER.add(product.getId());
+            if (QUEUED.incrementAndGet() > MAX_PRODUCTS * 2) {
+                compactQueue();
+            }
+        }
+        // 超出容量时按写入顺序淘汰
+        while (PRODUCTS.size() > MAX_PRODUCTS) {
+            Long eldest = INSERTION_ORDER.poll();
+            if (eldest == null) {
+                break;
+            }
+            QUEUED.decrementAndGet();
+            if (PRODUCTS.remove(eldest) != null) {
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    private static void compactQueue() {
+        synchronized (INSERTION_ORDER) {
+            if (QUEUED.get() <= MAX_PRODUCTS * 2) {
+                return;
+            }
+            INSERTION_ORDER.clear();
+            INSERTION_ORDER.addAll(PRODUCTS.keySet());
+            QUEUED.set(PRODUCTS.size());
+        }
+    }
+
+    private static Product copy(Product source) {
+        Product product = new Product();
+        product.setId(source.getId());
+        product.setCategoryId(source.getCategoryId());
+        product.setName(source.getName());
+        product.setDescription(source.getDescription());
+        product.setPrice(source.getPrice());
+        product.setStock(source.getStock());
+        product.setImageUrl(source.getImageUrl());
+        product.setStatus(source.getStatus());
+        product.setCreatedAt(source.getCreatedAt());
+        product.setUpdatedAt(source.getUpdatedAt());
+        return product;
+    }
+}
@@ -0,0 +1,139 @@
+package com.shop.util;
+
+import com.shop.model.Category;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// 分类快照：全部分类（按 id 升序）及按ID的索引，整体不可变，读取不加锁
+// 后台新增、修改、删除分类后在旧快照的基础上复制出新快照并原子替换（写时复制），下一次读取即可看到
+// 对外只返回副本，调用方修改不会污染快照
+public class CategoryCache {
+    private static volatile Snapshot snapshot;
+
+    private static final LongAdder READS = new LongAdder();
+    private static final LongAdder LOADS = new LongAdder();
+    private static final LongAdder SWAPS = new LongAdder();
+
+    @FunctionalInterface
+    public interface Loader {
+        List<Category> load() throws SQLException;
+    }
+
+    private static class Snapshot {
+        final List<Category> categories;
+        final Map<Long, Category> byId;
+
+        Snapshot(List<Category> categories) {
+            List<Category> sorted = new ArrayList<>(categories);
+            sorted.sort(Comparator.comparing(Category::getId));
+            Map<Long, Category> byId = new HashMap<>(sorted.size() * 2);
+            for (Category category : sorted) {
+                byId.put(category.getId(), category);
+            }
+            this.categories = Collections.unmodifiableList(sorted);
+            this.byId = byId;
+        }
+    }
+
+    public static List<Category> getAll(Loader loader) throws SQLException {
+        List<Category> categories = snapshot(loader).categories;
+        List<Category> result = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            result.add(copy(category));
+        }
+        return result;
+    }
+
+    // 不存在时返回 null
+    public static Category get(Long id, Loader loader) throws SQLException {
+        Category category = snapshot(loader).byId.get(id);
+        return category != null ? copy(category) : null;
+    }
+
+    // 分类新增或修改成功后调用；快照尚未加载时忽略，首次读取时会从数据库加载最新内容
+    public static synchronized void put(Category category) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<Category> categories = new ArrayList<>(current.categories.size() + 1);
+        for (Category existing : current.categories) {
+            if (!existing.getId().equals(category.getId())) {
+                categories.add(existing);
+            }
+        }
+        categories.add(copy(category));
+        swap(new Snapshot(categories));
+    }
+
+    // 分类删除成功后调用
+    public static synchronized void remove(Long id) {
+        Snapshot current = snapshot;
+        if (current == null || !current.byId.containsKey(id)) {
+            return;
+        }
+        List<Category> categories = new ArrayList<>(current.categories);
+        categories.removeIf(category -> category.getId().equals(id));
+        swap(new Snapshot(categories));
+    }
+
+    public static synchronized void clear() {
+        snapshot = null;
+    }
+
+    public static Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("categories", current != null ? current.categories.size() : 0);
+        stats.put("reads", READS.sum());
+        stats.put("loads", LOADS.sum());
+        stats.put("swaps", SWAPS.sum());
+        return stats;
+    }
+
+    private static Snapshot snapshot(Loader loader) throws SQLException {
+        READS.increment();
+        Snapshot current = snapshot;
+        return current != null ? current : load(loader);
+    }
+
+    // 加载与写操作互斥：写操作在数据库提交后才修改快照，加载期间发生的修改会在加载完成后再应用一次
+    private static synchronized Snapshot load(Loader loader) throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        List<Category> loaded = new ArrayList<>();
+        for (Category category : loader.load()) {
+            loaded.add(copy(category));
+        }
+        current = new Snapshot(loaded);
+        snapshot = current;
+        LOADS.increment();
+        return current;
+    }
+
+    private static void swap(Snapshot next) {
+        snapshot = next;
+        SWAPS.increment();
+    }
+
+    private static Category copy(Category source) {
+        Category category = new Category();
+        category.setId(source.getId());
+        category.setName(source.getName());
+        category.setDescription(source.getDescription());
+        category.setCreatedAt(source.getCreatedAt());
+        category.setUpdatedAt(source.getUpdatedAt());
+        return category;
+    }
+}
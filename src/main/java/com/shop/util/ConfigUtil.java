@@ -0,0 +1,51 @@
+package com.shop.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+// 读取 config/database.properties 中的应用配置，同名 JVM 系统属性（-Dkey=value）优先
+public class ConfigUtil {
+    private static final Properties PROPS = new Properties();
+
+    static {
+        try (InputStream is = ConfigUtil.class.getClassLoader()
+                .getResourceAsStream("config/database.properties")) {
+            if (is != null) {
+                PROPS.load(is);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load database configuration", e);
+        }
+    }
+
+    public static Properties getProperties() {
+        Properties copy = new Properties();
+        copy.putAll(PROPS);
+        return copy;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = value(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = value(key);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = value(key);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = value(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    private static String value(String key) {
+        return System.getProperty(key, PROPS.getProperty(key));
+    }
+}
@@ -0,0 +1,117 @@
+package com.shop.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 列表总数缓存：按 表 + 筛选条件 缓存 COUNT 结果，短 TTL，写操作按表失效
+public class CountCache {
+    private static final int MAX_ENTRIES = 2000;
+    private static final long TTL_MILLIS = ConfigUtil.getLong("count.cacheTtlMillis", 30000);
+    private static final boolean ESTIMATE_UNFILTERED = ConfigUtil.getBoolean("count.estimateUnfiltered", false);
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> VERSIONS = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder ESTIMATES = new LongAdder();
+
+    @FunctionalInterface
+    public interface CountLoader {
+        int load() throws SQLException;
+    }
+
+    private static class Entry {
+        final int value;
+        final long version;
+        final long expiresAt;
+
+        Entry(int value, long version, long expiresAt) {
+            this.value = value;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static int count(String table, String signature, CountLoader loader) throws SQLException {
+        String key = table + "|" + signature;
+        long version = version(table).get();
+        Entry entry = CACHE.get(key);
+        if (entry != null && entry.version == version && entry.expiresAt > System.currentTimeMillis()) {
+            HITS.increment();
+            return entry.value;
+        }
+        MISSES.increment();
+
+        int value = loader.load();
+
+        // 查询期间发生写操作则不缓存，避免把旧值写回
+        if (version(table).get() == version) {
+            if (CACHE.size() >= MAX_ENTRIES) {
+                long now = System.currentTimeMillis();
+                CACHE.values().removeIf(e -> e.expiresAt <= now);
+                if (CACHE.size() >= MAX_ENTRIES) {
+                    CACHE.clear();
+                }
+            }
+            CACHE.put(key, new Entry(value, version, System.currentTimeMillis() + TTL_MILLIS));
+        }
+        return value;
+    }
+
+    // 无筛选条件的总数：开启估算时读取 InnoDB 统计的行数，否则走精确 COUNT 缓存
+    public static int countAll(String table, CountLoader loader) throws SQLException {
+        if (!ESTIMATE_UNFILTERED) {
+            return count(table, "*", loader);
+        }
+        return count(table, "~", () -> {
+            ESTIMATES.increment();
+            Integer estimate = estimateRows(table);
+            return estimate != null ? estimate : loader.load();
+        });
+    }
+
+    public static void invalidate(String table) {
+        version(table).incrementAndGet();
+        String prefix = table + "|";
+        CACHE.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", CACHE.size());
+        stats.put("hits", HITS.sum());
+        stats.put("misses", MISSES.sum());
+        stats.put("estimates", ESTIMATES.sum());
+        stats.put("ttlMillis", TTL_MILLIS);
+        stats.put("estimateUnfiltered", ESTIMATE_UNFILTERED);
+        return stats;
+    }
+
+    private static AtomicLong version(String table) {
+        return VERSIONS.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private static Integer estimateRows(String table) throws SQLException {
+        String sql = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    long rows = rs.getLong(1);
+                    if (!rs.wasNull()) {
+                        return (int) Math.min(rows, Integer.MAX_VALUE);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,44 +0,0 @@
-package com.shop.util;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.sql.*;
-import java.util.Properties;
-
-public class DBUtil {
-    private static String url;
-    private static String username;
-    private static String password;
-    private static String driver;
-
-    static {
-        try {
-            Properties prop = new Properties();
-            InputStream in = DBUtil.class.getClassLoader().getResourceAsStream("config/database.properties");
-            prop.load(in);
-
-            driver = prop.getProperty("jdbc.driver");
-            url = prop.getProperty("jdbc.url");
-            username = prop.getProperty("jdbc.username");
-            password = prop.getProperty("jdbc.password");
-
-            Class.forName(driver);
-        } catch (Exception e) {
-            throw new RuntimeException("数据库配置加载失败", e);
-        }
-    }
-
-    public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
-    }
-
-    public static void close(Connection conn, Statement stmt, ResultSet rs) {
-        try {
-            if (rs != null) rs.close();
-            if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-}
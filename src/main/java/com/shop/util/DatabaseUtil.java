@@ -1,50 +1,164 @@
 package com.shop.util;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
-import java.io.InputStream;
-import java.io.IOException;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 public class DatabaseUtil {
-    private static HikariDataSource dataSource;
-    
-    static {
+    private static volatile HikariDataSource dataSource;
+    private static final PoolMetrics metrics = new PoolMetrics();
+    // 当前线程借出的连接上新建语句的查询超时（秒），由 RequestLane 按接口剩余的超时时间设置
+    private static final ThreadLocal<Integer> QUERY_TIMEOUT = new ThreadLocal<>();
+
+    // 由 DataSourceListener 在应用启动时调用
+    public static synchronized void start() {
+        if (dataSource != null) {
+            return;
+        }
+        start(ConfigUtil.getProperties());
+    }
+
+    public static synchronized void start(Properties props) {
+        if (dataSource != null) {
+            return;
+        }
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(props.getProperty("jdbc.poolName", "shop-pool"));
+        config.setJdbcUrl(props.getProperty("jdbc.url"));
+        config.setUsername(props.getProperty("jdbc.username"));
+        config.setPassword(props.getProperty("jdbc.password"));
+        config.setDriverClassName(props.getProperty("jdbc.driver"));
+
+        // 连接池配置
+        config.setMinimumIdle(Integer.parseInt(props.getProperty("jdbc.minIdle", "5")));
+        config.setMaximumPoolSize(Integer.parseInt(props.getProperty("jdbc.maxActive", "20")));
+        config.setConnectionTimeout(Long.parseLong(props.getProperty("jdbc.connectionTimeout", "30000")));
+        config.setIdleTimeout(Long.parseLong(props.getProperty("jdbc.idleTimeout", "600000")));
+        config.setMaxLifetime(Long.parseLong(props.getProperty("jdbc.maxLifetime", "1800000")));
+
+        // 连接泄漏检测：连接被借出超过阈值未归还时打印告警堆栈，0 表示关闭
+        config.setLeakDetectionThreshold(Long.parseLong(props.getProperty("jdbc.leakDetectionThreshold", "0")));
+
+        // MySQL 预编译语句缓存
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // 批量语句合并发送，addBatch/executeBatch 只需一次往返
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+
+        config.setMetricsTrackerFactory(metrics);
+
+        dataSource = new HikariDataSource(config);
+    }
+
+    public static Connection getConnection() throws SQLException {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            // 非容器环境（如脚本、基准测试）下按需初始化
+            start();
+            ds = dataSource;
+        }
+        Connection conn = ds.getConnection();
+        Integer timeout = QUERY_TIMEOUT.get();
+        return timeout != null ? withQueryTimeout(conn, timeout) : conn;
+    }
+
+    // seconds 为 null 时取消；超时的语句抛出 SQLTimeoutException，连接仍可继续使用
+    public static void setQueryTimeout(Integer seconds) {
+        if (seconds == null) {
+            QUERY_TIMEOUT.remove();
+        } else {
+            QUERY_TIMEOUT.set(seconds);
+        }
+    }
+
+    // 包装连接：通过它创建的 Statement/PreparedStatement/CallableStatement 都带上查询超时
+    private static Connection withQueryTimeout(Connection conn, int seconds) {
+        return (Connection) Proxy.newProxyInstance(DatabaseUtil.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        ((Statement) result).setQueryTimeout(seconds);
+                    }
+                    return result;
+                });
+    }
+
+    public static void close(Connection conn, Statement stmt, ResultSet rs) {
         try {
-            Properties props = new Properties();
-            try (InputStream is = DatabaseUtil.class.getClassLoader()
-                    .getResourceAsStream("config/database.properties")) {
-                props.load(is);
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 事务失败时回滚，回滚本身的异常只记录不抛出，避免覆盖原始异常
+    public static void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
-            
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(props.getProperty("jdbc.url"));
-            config.setUsername(props.getProperty("jdbc.username"));
-            config.setPassword(props.getProperty("jdbc.password"));
-            config.setDriverClassName(props.getProperty("jdbc.driver"));
-            
-            // 连接池配置
-            config.setMinimumIdle(Integer.parseInt(props.getProperty("jdbc.minIdle", "5")));
-            config.setMaximumPoolSize(Integer.parseInt(props.getProperty("jdbc.maxActive", "20")));
-            config.setConnectionTimeout(30000);
-            config.setIdleTimeout(600000);
-            config.setMaxLifetime(1800000);
-            
-            dataSource = new HikariDataSource(config);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load database configuration", e);
-        }
-    }
-    
-    public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        }
     }
-    
-    public static void close() {
+
+    // 结束事务：恢复自动提交后归还连接
+    public static void release(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        close(conn, null, null);
+    }
+
+    // 连接池运行状态，供监控接口使用
+    public static Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            stats.put("running", false);
+            return stats;
+        }
+        stats.put("running", !ds.isClosed());
+        stats.put("poolName", ds.getPoolName());
+        stats.put("maximumPoolSize", ds.getMaximumPoolSize());
+        stats.put("minimumIdle", ds.getMinimumIdle());
+        stats.put("leakDetectionThreshold", ds.getLeakDetectionThreshold());
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("activeConnections", pool.getActiveConnections());
+            stats.put("idleConnections", pool.getIdleConnections());
+            stats.put("totalConnections", pool.getTotalConnections());
+            stats.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+        }
+        stats.putAll(metrics.snapshot());
+        return stats;
+    }
+
+    public static synchronized void close() {
         if (dataSource != null) {
             dataSource.close();
+            dataSource = null;
         }
     }
 }
@@ -0,0 +1,79 @@
+package com.shop.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// HTTP 条件请求：按响应依赖的字段生成 ETag / Last-Modified，客户端缓存仍有效时返回 304，不再序列化和发送响应体
+// ETag 使用弱校验值，压缩后的响应与未压缩的响应共用同一个 ETag
+public class HttpCacheUtil {
+    // 浏览器和 CDN 在此时间内直接使用缓存，过期后带校验值重新验证
+    private static final int MAX_AGE = ConfigUtil.getInt("http.catalogMaxAge", 30);
+
+    // 64 位 FNV-1a
+    public static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    // 把一个字段折叠进哈希值，字段之间加分隔符，避免 "1","23" 与 "12","3" 相同
+    public static long hash(long h, Object value) {
+        String s = String.valueOf(value);
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * PRIME;
+        }
+        return (h ^ 0x1f) * PRIME;
+    }
+
+    // 写入校验头和 Cache-Control；请求的缓存仍有效时设置 304 并返回 true，调用方不再写响应体
+    // lastModified <= 0 表示不提供 Last-Modified（例如列表中删除了商品时最大更新时间不会变化）
+    public static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                                      long hash, long lastModified) {
+        String etag = "W/\"" + Long.toHexString(hash) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "public, max-age=" + MAX_AGE);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        // If-None-Match 优先，存在时忽略 If-Modified-Since
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean matched;
+        if (ifNoneMatch != null) {
+            matched = matches(ifNoneMatch, etag);
+        } else {
+            matched = lastModified > 0 && notModifiedSince(request, lastModified);
+        }
+        if (matched) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return matched;
+    }
+
+    // 弱比较：忽略 W/ 前缀，支持逗号分隔的多个值和 *
+    private static boolean matches(String header, String etag) {
+        String opaque = etag.substring(2);
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean notModifiedSince(HttpServletRequest request, long lastModified) {
+        long since;
+        try {
+            since = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            // 无法解析的日期按未携带处理
+            return false;
+        }
+        // HTTP 日期精确到秒
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+}
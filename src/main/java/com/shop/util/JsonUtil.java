@@ -1,21 +1,43 @@
 package com.shop.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
+import com.shop.model.CartItem;
+import com.shop.model.CartOperation;
+import com.shop.model.Category;
+import com.shop.model.Order;
+import com.shop.model.OrderItem;
+import com.shop.model.PageResult;
+import com.shop.model.Product;
 import com.shop.model.Result;
+import com.shop.model.User;
 
+// 全局唯一的 ObjectMapper，所有控制器都通过这里读写 JSON
+// Blackbird 用 LambdaMetafactory 生成属性读写器，代替反射调用 getter/setter；输出与默认配置完全一致
 public class JsonUtil {
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new BlackbirdModule());
+
+    private static final Class<?>[] MODEL_TYPES = {
+            Result.class, PageResult.class, Product.class, Category.class,
+            Order.class, OrderItem.class, CartItem.class, CartOperation.class, User.class
+    };
+
+    // 启动时预先构建模型类的序列化器和反序列化器（含 Blackbird 生成的读写器），避免首批请求承担这部分开销
+    public static void warmUp() throws IOException {
+        for (Class<?> type : MODEL_TYPES) {
+            MAPPER.getSerializerProviderInstance().findTypedValueSerializer(type, true, null);
+            MAPPER.canDeserialize(MAPPER.constructType(type));
+        }
+    }
 
     public static void writeJson(HttpServletResponse response, Object data) throws IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        try (PrintWriter writer = response.getWriter()) {
-            writer.write(MAPPER.writeValueAsString(data));
-            writer.flush();
-        }
+        // 直接序列化到输出流（UTF-8 字节），不再先生成完整的 String；生成器的缓冲区由 Jackson 按线程复用
+        // 写完后关闭输出流，与原先关闭 writer 的行为一致
+        MAPPER.writeValue(response.getOutputStream(), data);
     }
 
     public static <T> void writeJsonResponse(HttpServletResponse response, Result<T> result) throws IOException {
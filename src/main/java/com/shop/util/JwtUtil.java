@@ -2,6 +2,7 @@ package com.shop.util;
 
 import com.shop.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -13,6 +14,8 @@ public class JwtUtil {
     private static final String SECRET_KEY = "student_shops_secret_key_2025_01_06_very_long_and_secure";
     private static final Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
     private static final long EXPIRATION = 24 * 60 * 60 * 1000; // 24小时
+    // 解析器不可变且线程安全，只构建一次
+    private static final JwtParser PARSER = Jwts.parserBuilder().setSigningKey(key).build();
 
     public static String generateToken(Long userId, String username, String role) {
         Date now = new Date();
@@ -33,16 +36,12 @@ public class JwtUtil {
     }
 
     public static Claims parseToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return PARSER.parseClaimsJws(token).getBody();
     }
 
     public static boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            PARSER.parseClaimsJws(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -51,14 +50,17 @@ public class JwtUtil {
     
     public static User verifyToken(String token) {
         try {
-            Claims claims = parseToken(token);
-            User user = new User();
-            user.setId(Long.parseLong(claims.getSubject()));
-            user.setUsername(claims.get("username", String.class));
-            user.setRole(claims.get("role", String.class));
-            return user;
+            return toUser(parseToken(token));
         } catch (Exception e) {
             return null;
         }
     }
+
+    public static User toUser(Claims claims) {
+        User user = new User();
+        user.setId(Long.parseLong(claims.getSubject()));
+        user.setUsername(claims.get("username", String.class));
+        user.setRole(claims.get("role", String.class));
+        return user;
+    }
 }
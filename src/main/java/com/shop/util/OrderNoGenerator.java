@@ -0,0 +1,85 @@
+package com.shop.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 订单号生成器（Snowflake 思路）：yyyyMMddHHmmss + 毫秒(3位) + 节点号(2位) + 毫秒内序号(3位)，共 22 位纯数字
+// 时间与序号打包在一个 AtomicLong 中用 CAS 推进，不加锁；同一毫秒序号用尽或时钟回拨时沿用并推进上一个时间，保证单调不重复
+public class OrderNoGenerator {
+    private static final int SEQUENCE_LIMIT = 1000;
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss")
+            .withZone(ZoneId.systemDefault());
+
+    // 多节点部署时每个节点配置不同的 order.nodeId（0~99）
+    private static final int NODE_ID = ConfigUtil.getInt("order.nodeId", 0);
+
+    // 毫秒时间戳 * 1000 + 序号
+    private static final AtomicLong STATE = new AtomicLong();
+    // 最近一次格式化的秒及其字符串，同一秒内复用
+    private static volatile SecondPrefix prefix = new SecondPrefix(-1, "");
+
+    static {
+        if (NODE_ID < 0 || NODE_ID > 99) {
+            throw new IllegalStateException("order.nodeId 必须在 0~99 之间: " + NODE_ID);
+        }
+    }
+
+    private static class SecondPrefix {
+        final long second;
+        final String text;
+
+        SecondPrefix(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    public static String next() {
+        long next;
+        while (true) {
+            long current = STATE.get();
+            long lastMillis = current / SEQUENCE_LIMIT;
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                next = now * SEQUENCE_LIMIT;
+            } else if (current % SEQUENCE_LIMIT < SEQUENCE_LIMIT - 1) {
+                next = current + 1;
+            } else {
+                // 本毫秒序号用尽，借用下一毫秒
+                next = (lastMillis + 1) * SEQUENCE_LIMIT;
+            }
+            if (STATE.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        return format(next / SEQUENCE_LIMIT, (int) (next % SEQUENCE_LIMIT));
+    }
+
+    private static String format(long millis, int sequence) {
+        long second = Math.floorDiv(millis, 1000L);
+        SecondPrefix cached = prefix;
+        if (cached.second != second) {
+            cached = new SecondPrefix(second, SECOND_FORMAT.format(Instant.ofEpochSecond(second)));
+            prefix = cached;
+        }
+
+        int ms = (int) Math.floorMod(millis, 1000L);
+        char[] chars = new char[cached.text.length() + 8];
+        cached.text.getChars(0, cached.text.length(), chars, 0);
+        int i = cached.text.length();
+        i = putDigits(chars, i, ms, 3);
+        i = putDigits(chars, i, NODE_ID, 2);
+        putDigits(chars, i, sequence, 3);
+        return new String(chars);
+    }
+
+    private static int putDigits(char[] chars, int offset, int value, int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            chars[offset + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + width;
+    }
+}
@@ -0,0 +1,80 @@
+package com.shop.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+// 游标分页（keyset）的游标：记录上一页最后一行的排序值和ID，对客户端不透明
+public class PageCursor {
+    public static final String TYPE_TIME = "t";
+    public static final String TYPE_PRICE = "p";
+
+    private final String type;
+    private final String value;
+    private final long id;
+
+    private PageCursor(String type, String value, long id) {
+        this.type = type;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static PageCursor ofTime(Date createdAt, long id) {
+        // 保留纳秒精度，否则带小数秒的时间列会在翻页边界漏行
+        long seconds = Math.floorDiv(createdAt.getTime(), 1000L);
+        int nanos = createdAt instanceof Timestamp
+                ? ((Timestamp) createdAt).getNanos()
+                : (int) Math.floorMod(createdAt.getTime(), 1000L) * 1000000;
+        return new PageCursor(TYPE_TIME, seconds + "." + nanos, id);
+    }
+
+    public static PageCursor ofPrice(BigDecimal price, long id) {
+        return new PageCursor(TYPE_PRICE, price.toPlainString(), id);
+    }
+
+    public String encode() {
+        String raw = type + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 空字符串表示第一页，返回 null；格式错误或类型不符抛出 IllegalArgumentException
+    public static PageCursor decode(String cursor, String expectedType) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = raw.split("\\|");
+        if (parts.length != 3 || !parts[0].equals(expectedType)) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        PageCursor pageCursor = new PageCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        // 提前校验排序值格式：时间缺少小数点等被篡改的游标统一按格式错误处理，调用方只需捕获 IllegalArgumentException
+        try {
+            if (TYPE_TIME.equals(expectedType)) {
+                pageCursor.getTimestamp();
+            } else {
+                pageCursor.getPrice();
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+        return pageCursor;
+    }
+
+    public Timestamp getTimestamp() {
+        int dot = value.indexOf('.');
+        Timestamp timestamp = new Timestamp(Long.parseLong(value.substring(0, dot)) * 1000L);
+        timestamp.setNanos(Integer.parseInt(value.substring(dot + 1)));
+        return timestamp;
+    }
+
+    public BigDecimal getPrice() {
+        return new BigDecimal(value);
+    }
+
+    public long getId() {
+        return id;
+    }
+}
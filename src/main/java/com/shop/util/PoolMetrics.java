@@ -0,0 +1,66 @@
+package com.shop.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// 连接池指标采集：借连接等待时间、连接占用时间、超时次数
+public class PoolMetrics implements MetricsTrackerFactory, IMetricsTracker {
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAccumulator maxUsageMillis = new LongAccumulator(Math::max, 0);
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquireCount.increment();
+        acquireNanos.add(elapsedAcquiredNanos);
+        maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageCount.increment();
+        usageMillis.add(elapsedBorrowedMillis);
+        maxUsageMillis.accumulate(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        createdCount.increment();
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeoutCount.increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        long acquires = acquireCount.sum();
+        long usages = usageCount.sum();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("acquireCount", acquires);
+        data.put("avgWaitMicros", acquires == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / acquires));
+        data.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()));
+        data.put("avgUsageMillis", usages == 0 ? 0 : usageMillis.sum() / usages);
+        data.put("maxUsageMillis", maxUsageMillis.get());
+        data.put("connectionsCreated", createdCount.sum());
+        data.put("connectionTimeouts", timeoutCount.sum());
+        return data;
+    }
+}
@@ -0,0 +1,190 @@
+package com.shop.util;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// 控制器异步执行（async.mode）：
+//   off     - 默认，控制器在容器线程上执行
+//   virtual - 每个请求在一个虚拟线程上执行，容器线程交出请求后立即返回（需要 Java 21，见 pom 的 java21 profile）
+// 虚拟线程数量不设上限，并发由连接池（jdbc.maxActive）限制：等待连接的请求只占用一个虚拟线程，不占容器线程，
+// 不访问数据库的请求（商品目录缓存等）不会排在它们后面
+// MySQL Connector/J 8.0 在 synchronized 块中读写网络，执行 SQL 期间虚拟线程固定在载体线程上，
+// 因此载体线程数（jdk.virtualThreadScheduler.parallelism）应不小于连接池大小，每个连接才能同时在用。
+// 该值只在 JVM 启动参数中设置才可靠（虚拟线程调度器可能在本类之前已被创建），start 只检查并告警，不修改系统属性
+public class RequestExecutor {
+    private static final String FINISHERS = RequestExecutor.class.getName() + ".finishers";
+
+    private static final LongAdder DISPATCHED = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    private static volatile ExecutorService executor;
+    private static String mode = "off";
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle() throws IOException, ServletException;
+    }
+
+    // 在工作线程上结束请求前调用，用于过滤器收尾（如 CompressionFilter 写出压缩结果）
+    @FunctionalInterface
+    public interface Finisher {
+        void finish() throws IOException;
+    }
+
+    // 由 DataSourceListener 在启动时调用；配置了 virtual 但运行环境不支持时抛出 IllegalStateException
+    public static synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        mode = ConfigUtil.get("async.mode", "off").trim();
+        if ("off".equals(mode)) {
+            return;
+        }
+        if (!"virtual".equals(mode)) {
+            throw new IllegalStateException("未知的 async.mode: " + mode);
+        }
+        executor = newVirtualThreadExecutor();
+        int parallelism = parallelism();
+        int maxActive = ConfigUtil.getInt("jdbc.maxActive", 20);
+        if (parallelism < maxActive) {
+            System.err.println("警告: 虚拟线程载体线程数 " + parallelism + " 小于 jdbc.maxActive " + maxActive
+                    + "，执行 SQL 时最多只有 " + parallelism + " 个连接同时在用，请在 JVM 启动参数中加入 "
+                    + "-Djdk.virtualThreadScheduler.parallelism=" + maxActive);
+        }
+    }
+
+    // 等待正在处理的请求结束，在关闭连接池之前调用
+    public static synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    // 开启异步模式时在工作线程上执行 handler 并结束请求，返回 true；否则返回 false，由调用方在当前线程执行
+    // 请求链上有不支持异步的过滤器、或不是普通请求（错误页转发等）时也返回 false
+    public static boolean dispatch(HttpServletRequest request, HttpServletResponse response, Handler handler)
+            throws IOException {
+        ExecutorService current = executor;
+        if (current == null || !request.isAsyncSupported() || request.isAsyncStarted()
+                || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return false;
+        }
+        AsyncContext context = request.startAsync(request, response);
+        // 不设超时：工作线程总会结束请求，最长等待时间由连接池的 connectionTimeout 限制
+        context.setTimeout(0);
+        ACTIVE.incrementAndGet();
+        DISPATCHED.increment();
+        try {
+            current.execute(() -> run(context, request, response, handler));
+        } catch (RejectedExecutionException e) {
+            // 应用正在停止
+            ACTIVE.decrementAndGet();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            context.complete();
+        }
+        return true;
+    }
+
+    private static void run(AsyncContext context, HttpServletRequest request, HttpServletResponse response, Handler handler) {
+        try {
+            invoke(request, response, handler);
+        } finally {
+            ACTIVE.decrementAndGet();
+            complete(context);
+        }
+    }
+
+    // 在工作线程上执行 handler：异常记录到容器日志，响应尚未提交时返回 500（RequestLane 共用）
+    static void invoke(HttpServletRequest request, HttpServletResponse response, Handler handler) {
+        try {
+            handler.handle();
+        } catch (IOException | ServletException | RuntimeException e) {
+            FAILED.increment();
+            request.getServletContext().log("处理请求失败: " + request.getRequestURI(), e);
+            if (!response.isCommitted()) {
+                try {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } catch (IOException ignored) {
+                    // 客户端已断开
+                }
+            }
+        }
+    }
+
+    // 每个请求一个虚拟线程；编译目标为 Java 17，通过反射调用 Java 21 的 API
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("async.mode=virtual 需要 Java 21 运行环境，当前为 "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+
+    // 在异步处理中注册收尾操作；请求没有进入异步处理时不会调用，由注册方自己收尾
+    @SuppressWarnings("unchecked")
+    public static void onFinish(ServletRequest request, Finisher finisher) {
+        List<Finisher> finishers = (List<Finisher>) request.getAttribute(FINISHERS);
+        if (finishers == null) {
+            finishers = new ArrayList<>(2);
+            request.setAttribute(FINISHERS, finishers);
+        }
+        finishers.add(finisher);
+    }
+
+    // 先按注册的倒序收尾（内层过滤器先收尾），再结束异步处理
+    @SuppressWarnings("unchecked")
+    static void complete(AsyncContext context) {
+        List<Finisher> finishers = (List<Finisher>) context.getRequest().getAttribute(FINISHERS);
+        if (finishers != null) {
+            for (int i = finishers.size() - 1; i >= 0; i--) {
+                try {
+                    finishers.get(i).finish();
+                } catch (IOException e) {
+                    // 客户端已断开等，与同步处理时过滤器抛出的异常一样只影响这个请求
+                    e.printStackTrace();
+                }
+            }
+        }
+        context.complete();
+    }
+
+    // 虚拟线程调度器实际使用的载体线程数，未设置启动参数时等于 CPU 核数
+    private static int parallelism() {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("parallelism", parallelism());
+        stats.put("active", ACTIVE.get());
+        stats.put("dispatched", DISPATCHED.sum());
+        stats.put("failed", FAILED.sum());
+        return stats;
+    }
+}
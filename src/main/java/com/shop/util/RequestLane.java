@@ -0,0 +1,265 @@
+package com.shop.util;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// 慢接口的执行通道：每个通道一个固定线程数、有界队列的执行器，报表类查询在这里排队，不占用容器线程
+//   lane.<name>.threads       - 线程数，即该接口最多同时占用的连接数，0 表示不使用通道，在当前线程直接执行
+//   lane.<name>.queue         - 排队上限，队列已满时直接返回 503，不再等待
+//   lane.<name>.timeoutMillis - 从进入通道算起的超时：排队超时返回 503 且不访问数据库，执行中则作为剩余的查询超时
+// 所有通道的线程数之和必须小于 jdbc.maxActive，至少给下单等其他请求留下连接
+public class RequestLane {
+    private static final Map<String, RequestLane> LANES = new ConcurrentHashMap<>();
+    // 排队超时计时器，首次使用时创建，stop 时关闭，避免重新部署后线程和类加载器泄漏
+    private static ScheduledThreadPoolExecutor timer;
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int TIMED_OUT = 2;
+
+    private final String name;
+    private final int threads;
+    private final int queueSize;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    private RequestLane(String name) {
+        int defaultThreads = Math.max(1, ConfigUtil.getInt("jdbc.maxActive", 20) / 4);
+        this.name = name;
+        this.threads = ConfigUtil.getInt("lane." + name + ".threads", defaultThreads);
+        this.queueSize = ConfigUtil.getInt("lane." + name + ".queue", Math.max(1, threads) * 8);
+        this.timeoutMillis = ConfigUtil.getLong("lane." + name + ".timeoutMillis", 10000);
+        if (threads > 0) {
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), runnable -> {
+                        Thread thread = new Thread(runnable, "lane-" + name + "-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    // 不存在时按配置创建，未配置的通道使用默认值
+    public static RequestLane get(String name) {
+        return LANES.computeIfAbsent(name, RequestLane::new);
+    }
+
+    // 由 DataSourceListener 在启动时调用：创建配置中的所有通道，线程数之和不小于连接池大小时抛出 IllegalStateException
+    public static synchronized void start() {
+        for (String key : ConfigUtil.getProperties().stringPropertyNames()) {
+            if (key.startsWith("lane.") && key.endsWith(".threads")) {
+                get(key.substring("lane.".length(), key.length() - ".threads".length()));
+            }
+        }
+        int total = 0;
+        for (RequestLane lane : LANES.values()) {
+            total += lane.threads;
+        }
+        int maxActive = ConfigUtil.getInt("jdbc.maxActive", 20);
+        if (total >= maxActive) {
+            throw new IllegalStateException("执行通道线程数之和 " + total + " 必须小于 jdbc.maxActive " + maxActive);
+        }
+    }
+
+    // 执行完已排队的请求，在关闭连接池之前调用
+    public static synchronized void stop() {
+        for (RequestLane lane : LANES.values()) {
+            if (lane.executor != null) {
+                lane.executor.shutdown();
+            }
+        }
+        for (RequestLane lane : LANES.values()) {
+            if (lane.executor != null) {
+                try {
+                    lane.executor.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        LANES.clear();
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "lane-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    // 在通道中执行 handler。请求还没有进入异步处理时开启 AsyncContext，容器线程立即返回；
+    // 已在异步处理中（async.mode=virtual）或请求不支持异步时，当前线程等待通道执行完毕
+    public void execute(HttpServletRequest request, HttpServletResponse response, RequestExecutor.Handler handler)
+            throws IOException, ServletException {
+        if (executor == null) {
+            handler.handle();
+            return;
+        }
+        // 应用正在停止：直接拒绝，不再创建计时器
+        if (executor.isShutdown()) {
+            shed.increment();
+            reject(response, "服务繁忙，请稍后重试");
+            return;
+        }
+        AsyncContext context = null;
+        if (request.isAsyncSupported() && !request.isAsyncStarted()) {
+            context = request.startAsync(request, response);
+            // 超时由通道自己处理，容器不再另外计时
+            context.setTimeout(0);
+        }
+        Task task = new Task(request, response, handler, context);
+        try {
+            task.timer = timer().schedule(task::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 应用正在停止
+            shed.increment();
+            reject(response, "服务繁忙，请稍后重试");
+            task.finish();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 队列已满或应用正在停止
+            task.timer.cancel(false);
+            if (task.state.compareAndSet(QUEUED, TIMED_OUT)) {
+                shed.increment();
+                try {
+                    reject(response, "服务繁忙，请稍后重试");
+                } finally {
+                    task.finish();
+                }
+            }
+            return;
+        }
+        if (context == null) {
+            try {
+                task.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (RequestLane lane : LANES.values()) {
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("threads", lane.threads);
+            laneStats.put("queueSize", lane.queueSize);
+            laneStats.put("timeoutMillis", lane.timeoutMillis);
+            laneStats.put("active", lane.executor != null ? lane.executor.getActiveCount() : 0);
+            laneStats.put("queued", lane.executor != null ? lane.executor.getQueue().size() : 0);
+            laneStats.put("executed", lane.executed.sum());
+            laneStats.put("shed", lane.shed.sum());
+            laneStats.put("timedOut", lane.timedOut.sum());
+            stats.put(lane.name, laneStats);
+        }
+        return stats;
+    }
+
+    // 与 OrderController 的错误响应格式一致，附带 Retry-After 提示客户端稍后重试
+    private static void reject(HttpServletResponse response, String message) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        error.put("message", message);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "1");
+        JsonUtil.writeJson(response, error);
+    }
+
+    // 排队中的请求由计时器或工作线程二者之一取走：先把状态从 QUEUED 改掉的一方负责响应
+    private class Task implements Runnable {
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final CountDownLatch done = new CountDownLatch(1);
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        final RequestExecutor.Handler handler;
+        final AsyncContext context;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        ScheduledFuture<?> timer;
+
+        Task(HttpServletRequest request, HttpServletResponse response, RequestExecutor.Handler handler, AsyncContext context) {
+            this.request = request;
+            this.response = response;
+            this.handler = handler;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            timer.cancel(false);
+            executed.increment();
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            DatabaseUtil.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+            try {
+                RequestExecutor.invoke(request, response, handler);
+            } finally {
+                DatabaseUtil.setQueryTimeout(null);
+                finish();
+            }
+        }
+
+        void expire() {
+            if (!state.compareAndSet(QUEUED, TIMED_OUT)) {
+                return;
+            }
+            executor.remove(this);
+            timedOut.increment();
+            try {
+                reject(response, "请求排队超时，请稍后重试");
+            } catch (IOException e) {
+                // 客户端已断开
+            } finally {
+                finish();
+            }
+        }
+
+        void finish() {
+            if (context != null) {
+                RequestExecutor.complete(context);
+            } else {
+                done.countDown();
+            }
+        }
+    }
+}
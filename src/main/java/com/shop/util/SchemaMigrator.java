@@ -0,0 +1,142 @@
+package com.shop.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 版本化的表结构迁移：按版本号依次执行 classpath 下的 sql/migrations/V1.sql、V2.sql ……
+// 已执行的版本及脚本摘要记录在 schema_migrations 表中，每个版本只执行一次；已执行的脚本不能再修改，新的变更请追加新版本
+// MySQL 的 DDL 会隐式提交，脚本中途失败时已执行的语句不会回滚，需要手工处理后再启动
+public class SchemaMigrator {
+    private static final String LOCATION = "sql/migrations/V";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INT NOT NULL PRIMARY KEY, " +
+            "description VARCHAR(200) NOT NULL, " +
+            "checksum VARCHAR(64) NOT NULL, " +
+            "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    // 执行全部未执行的版本，返回本次执行的版本号
+    public static synchronized List<Integer> migrate() throws SQLException {
+        List<Integer> migrated = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_TABLE);
+            }
+            Map<Integer, String> applied = applied(conn);
+
+            String script;
+            for (int version = 1; (script = load(version)) != null; version++) {
+                String checksum = checksum(script);
+                String recorded = applied.get(version);
+                if (recorded != null) {
+                    if (!recorded.equals(checksum)) {
+                        throw new IllegalStateException("迁移脚本 V" + version + " 在执行后被修改过");
+                    }
+                    continue;
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements(script)) {
+                        try {
+                            stmt.execute(sql);
+                        } catch (SQLException e) {
+                            throw new SQLException("迁移脚本 V" + version + " 执行失败: " + sql, e);
+                        }
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO schema_migrations (version, description, checksum) VALUES (?, ?, ?)")) {
+                    stmt.setInt(1, version);
+                    stmt.setString(2, description(script));
+                    stmt.setString(3, checksum);
+                    stmt.executeUpdate();
+                }
+                migrated.add(version);
+            }
+        }
+        return migrated;
+    }
+
+    // 已执行的版本，供监控接口查看
+    public static List<Map<String, Object>> getApplied() throws SQLException {
+        List<Map<String, Object>> versions = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT version, description, applied_at FROM schema_migrations ORDER BY version")) {
+            while (rs.next()) {
+                Map<String, Object> version = new LinkedHashMap<>();
+                version.put("version", rs.getInt("version"));
+                version.put("description", rs.getString("description"));
+                version.put("appliedAt", rs.getTimestamp("applied_at"));
+                versions.add(version);
+            }
+        }
+        return versions;
+    }
+
+    private static Map<Integer, String> applied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static String load(int version) {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + version + ".sql")) {
+            return in != null ? new String(in.readAllBytes(), StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            throw new IllegalStateException("读取迁移脚本 V" + version + " 失败", e);
+        }
+    }
+
+    // 去掉 -- 注释行后按分号切分语句
+    static List<String> statements(String script) {
+        StringBuilder body = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            if (!line.trim().startsWith("--")) {
+                body.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : body.toString().split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    // 脚本第一行注释作为描述
+    private static String description(String script) {
+        String first = script.split("\r?\n", 2)[0].trim();
+        String description = first.startsWith("--") ? first.substring(2).trim() : "";
+        return description.length() > 200 ? description.substring(0, 200) : description;
+    }
+
+    // 忽略换行符差异，避免 Windows 检出的脚本被判定为已修改
+    private static String checksum(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
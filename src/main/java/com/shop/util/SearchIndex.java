@@ -0,0 +1,792 @@
+package com.shop.util;
+
+import com.shop.model.Product;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 商品全文索引：对名称和描述建立倒排表，代替 LIKE '%kw%' 全表扫描
+// 分词：按字母/数字连续段切分并转小写，每段产生单字和相邻两字（中文 bigram，英文同样按两字切分以支持子串匹配）
+// 查询：关键词按空白切分，各部分的 gram 倒排表求交集得到候选，再逐个确认子串包含
+//       单个词时结果与 LIKE '%kw%' 一致；多个词时要求每个词都出现（不要求相邻），是 LIKE 整串匹配结果的超集
+// 更新：文档只追加，修改时旧文档标记删除、新文档追加到末尾，倒排表始终有序；删除过多时整体重建
+// 分面：每个分类、状态、价格区间维护一个文档位图，与关键词结果求交即得各分面的数量
+// 排序：在售商品（status=1）按分类维护按价格、按创建时间排好序的文档号数组，写入时二分插入，翻页按下标直接取
+// 刷新：本节点的商品写操作实时更新索引；其他节点或直接改库的变化每隔 search.refreshMillis 从数据库整体重建一次，
+//       重建在查询线程上加载、加载期间查询继续使用旧索引，0 表示不刷新（仅单节点且只通过本应用修改商品时使用）
+public class SearchIndex {
+    // 名称命中权重高于描述
+    private static final int NAME_SCORE = 3;
+    private static final int NAME_PREFIX_SCORE = 1;
+    private static final int DESCRIPTION_SCORE = 1;
+
+    private static final long REFRESH_MILLIS = ConfigUtil.getLong("search.refreshMillis", 60000);
+
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+    private static boolean loaded;
+    // 上次从数据库加载完成的时间，以及本节点写操作的次数（用于判断刷新加载期间是否有写入）
+    private static volatile long loadedAt;
+    private static long writes;
+    private static final AtomicBoolean REFRESHING = new AtomicBoolean();
+
+    // 文档存储，下标即内部文档号
+    private static int docCount;
+    private static long[] productIds = new long[0];
+    private static long[] categoryIds = new long[0];
+    private static int[] statuses = new int[0];
+    private static BigDecimal[] prices = new BigDecimal[0];
+    private static Timestamp[] createdAts = new Timestamp[0];
+    private static String[] names = new String[0];
+    private static String[] descriptions = new String[0];
+    private static final BitSet LIVE = new BitSet();
+    private static final Map<Long, Integer> DOC_BY_PRODUCT = new HashMap<>();
+
+    // gram（单字为字符本身，两字为 c1 << 16 | c2）-> 有序文档号
+    private static final Map<Integer, IntList> POSTINGS = new HashMap<>();
+
+    // 价格区间边界，如 100,500 表示 [0,100)、[100,500)、[500,∞) 三个区间
+    private static final BigDecimal[] PRICE_BOUNDS = priceBounds(ConfigUtil.get("search.priceBuckets", "100,500,1000,5000"));
+    private static final Map<Long, BitSet> CATEGORY_BITS = new HashMap<>();
+    private static final Map<Integer, BitSet> STATUS_BITS = new HashMap<>();
+    private static final BitSet[] PRICE_BITS = new BitSet[PRICE_BOUNDS.length + 1];
+
+    // 分类ID（全部为 ALL_CATEGORIES）-> 在售商品的有序文档号
+    private static final long ALL_CATEGORIES = -1L;
+    private static final int ON_SALE = 1;
+    private static final Map<Long, SortedDocs> SORTED = new HashMap<>();
+
+    static {
+        reset();
+    }
+
+    private static final LongAdder QUERIES = new LongAdder();
+    private static final LongAdder REBUILDS = new LongAdder();
+    private static final LongAdder REFRESHES = new LongAdder();
+
+    // 加载全部商品
+    @FunctionalInterface
+    public interface Loader {
+        List<Product> load() throws SQLException;
+    }
+
+    // 分面搜索结果：当前页的商品ID、总数和各分面数量
+    public static class FacetHits {
+        private final List<Long> ids;
+        private final int total;
+        private final Map<String, Object> facets;
+
+        FacetHits(List<Long> ids, int total, Map<String, Object> facets) {
+            this.ids = ids;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<String, Object> getFacets() {
+            return facets;
+        }
+    }
+
+    // byPrice 按 price ASC, id ASC；byTime 按 created_at DESC, id DESC，与 SQL 排序一致
+    private static class SortedDocs {
+        int[] byPrice = new int[8];
+        int[] byTime = new int[8];
+        int size;
+
+        void insert(int doc) {
+            if (size == byPrice.length) {
+                byPrice = Arrays.copyOf(byPrice, size * 2);
+                byTime = Arrays.copyOf(byTime, size * 2);
+            }
+            insert(byPrice, lowerBound(byPrice, doc, true), doc);
+            insert(byTime, lowerBound(byTime, doc, false), doc);
+            size++;
+        }
+
+        void remove(int doc) {
+            remove(byPrice, lowerBound(byPrice, doc, true));
+            remove(byTime, lowerBound(byTime, doc, false));
+            size--;
+        }
+
+        private void insert(int[] docs, int position, int doc) {
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+        }
+
+        private void remove(int[] docs, int position) {
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+        }
+
+        // 第一个不排在 doc 之前的位置
+        private int lowerBound(int[] docs, int doc, boolean price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int c = price ? comparePrice(docs[mid], doc) : compareTime(docs[mid], doc);
+                if (c < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    public static boolean isLoaded() {
+        LOCK.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 首次使用时加载；加载期间的写操作等待加载完成后再应用
+    public static void ensureLoaded(Loader loader) throws SQLException {
+        if (isLoaded()) {
+            return;
+        }
+        LOCK.writeLock().lock();
+        try {
+            if (!loaded) {
+                rebuild(loader.load());
+            }
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    // 距上次加载超过 search.refreshMillis 时从数据库重建，由一个查询线程完成，其余查询不等待
+    // loader 须直接查询数据库，不能经过商品目录缓存
+    public static void refreshIfStale(Loader loader) throws SQLException {
+        if (REFRESH_MILLIS <= 0 || System.currentTimeMillis() - loadedAt < REFRESH_MILLIS
+                || !REFRESHING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long version;
+            LOCK.readLock().lock();
+            try {
+                if (!loaded) {
+                    return;
+                }
+                version = writes;
+            } finally {
+                LOCK.readLock().unlock();
+            }
+            List<Product> products = loader.load();
+            LOCK.writeLock().lock();
+            try {
+                if (!loaded) {
+                    return;
+                }
+                // 加载期间本节点有写入时，加载结果可能早于写入，持锁重新加载
+                if (writes != version) {
+                    products = loader.load();
+                }
+                rebuild(products);
+                REFRESHES.increment();
+            } finally {
+                LOCK.writeLock().unlock();
+            }
+        } finally {
+            REFRESHING.set(false);
+        }
+    }
+
+    // 调用方持有写锁
+    private static void rebuild(List<Product> products) {
+        reset();
+        for (Product product : products) {
+            add(product);
+        }
+        loaded = true;
+        loadedAt = System.currentTimeMillis();
+    }
+
+    // 商品新增或修改后调用，未加载时忽略（加载时会读到最新数据）
+    public static void index(Product product) {
+        LOCK.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            writes++;
+            removeDoc(product.getId());
+            add(product);
+            compactIfNeeded();
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    public static void remove(Long productId) {
+        LOCK.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            writes++;
+            removeDoc(productId);
+            compactIfNeeded();
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    // 商品分类变化等需要重新加载全部数据时调用
+    public static void clear() {
+        LOCK.writeLock().lock();
+        try {
+            reset();
+            loaded = false;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    // 返回匹配关键词的商品ID：categoryId、status 为 null 表示不过滤
+    // orderBy 为 price_asc / price_desc / create_time_desc 时按对应列排序，否则按相关度排序
+    // after 不为 null 时只返回排在游标之后的商品（游标类型须与排序一致）
+    public static List<Long> search(String keyword, Long categoryId, Integer status, String orderBy, PageCursor after) {
+        QUERIES.increment();
+        List<String> parts = parts(keyword);
+        LOCK.readLock().lock();
+        try {
+            BitSet result = matches(parts);
+            if (categoryId != null) {
+                result.and(bits(CATEGORY_BITS.get(categoryId)));
+            }
+            if (status != null) {
+                result.and(bits(STATUS_BITS.get(status)));
+            }
+
+            List<int[]> hits = sorted(result, parts, orderBy);
+            List<Long> ids = new ArrayList<>(hits.size());
+            for (int[] hit : hits) {
+                int doc = hit[0];
+                if (after == null || isAfter(doc, after, orderBy)) {
+                    ids.add(productIds[doc]);
+                }
+            }
+            return ids;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 分面搜索：一次调用返回当前页、总数，以及各分类、各价格区间的数量
+    // 分类数量不受分类筛选影响、价格区间数量不受价格筛选影响，切换筛选项时可以直接显示
+    // priceRange 为价格区间下标，null 表示不筛选；keyword 为空时匹配全部商品
+    public static FacetHits facetSearch(String keyword, Long categoryId, Integer status, Integer priceRange,
+                                        String orderBy, int offset, int limit) {
+        QUERIES.increment();
+        List<String> parts = parts(keyword);
+        LOCK.readLock().lock();
+        try {
+            BitSet base = matches(parts);
+            if (status != null) {
+                base.and(bits(STATUS_BITS.get(status)));
+            }
+            BitSet categoryFilter = categoryId != null ? bits(CATEGORY_BITS.get(categoryId)) : null;
+            BitSet priceFilter = priceRange != null ? bits(priceRange >= 0 && priceRange < PRICE_BITS.length ? PRICE_BITS[priceRange] : null) : null;
+
+            // 各分类数量：关键词 ∧ 状态 ∧ 价格区间
+            BitSet withPrice = (BitSet) base.clone();
+            if (priceFilter != null) {
+                withPrice.and(priceFilter);
+            }
+            Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+            List<Long> categories = new ArrayList<>(CATEGORY_BITS.keySet());
+            categories.sort(null);
+            for (Long category : categories) {
+                int count = intersectionSize(withPrice, CATEGORY_BITS.get(category));
+                if (count > 0) {
+                    categoryCounts.put(category, count);
+                }
+            }
+
+            // 各价格区间数量：关键词 ∧ 状态 ∧ 分类
+            BitSet withCategory = (BitSet) base.clone();
+            if (categoryFilter != null) {
+                withCategory.and(categoryFilter);
+            }
+            List<Map<String, Object>> priceCounts = new ArrayList<>();
+            for (int i = 0; i < PRICE_BITS.length; i++) {
+                Map<String, Object> bucket = new LinkedHashMap<>();
+                bucket.put("index", i);
+                bucket.put("min", i == 0 ? BigDecimal.ZERO : PRICE_BOUNDS[i - 1]);
+                bucket.put("max", i < PRICE_BOUNDS.length ? PRICE_BOUNDS[i] : null);
+                bucket.put("count", intersectionSize(withCategory, PRICE_BITS[i]));
+                priceCounts.add(bucket);
+            }
+
+            // 结果：关键词 ∧ 状态 ∧ 分类 ∧ 价格区间
+            BitSet result = withCategory;
+            if (priceFilter != null) {
+                result.and(priceFilter);
+            }
+            List<int[]> hits = sorted(result, parts, orderBy);
+            List<Long> ids = new ArrayList<>();
+            for (int i = Math.max(offset, 0); i < hits.size() && i < offset + limit; i++) {
+                ids.add(productIds[hits.get(i)[0]]);
+            }
+
+            Map<String, Object> facets = new LinkedHashMap<>();
+            facets.put("categories", categoryCounts);
+            facets.put("priceRanges", priceCounts);
+            return new FacetHits(ids, hits.size(), facets);
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 在售商品数量，categoryId 为 null 表示全部
+    public static int onSaleCount(Long categoryId) {
+        LOCK.readLock().lock();
+        try {
+            SortedDocs sorted = SORTED.get(categoryId != null ? categoryId : ALL_CATEGORIES);
+            return sorted != null ? sorted.size : 0;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 在售商品的一页ID，耗时只与页大小有关
+    // after 不为 null 时从游标之后开始（二分定位），否则从 offset 开始
+    public static List<Long> onSalePage(Long categoryId, String orderBy, PageCursor after, int offset, int limit) {
+        QUERIES.increment();
+        LOCK.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(Math.max(limit, 0));
+            SortedDocs sorted = SORTED.get(categoryId != null ? categoryId : ALL_CATEGORIES);
+            if (sorted == null) {
+                return ids;
+            }
+            if ("price_desc".equals(orderBy)) {
+                // 价格倒序即 byPrice 反向遍历
+                int start = after != null ? countBefore(sorted, after, true, false) - 1 : sorted.size - 1 - offset;
+                for (int i = start; i >= 0 && ids.size() < limit; i--) {
+                    ids.add(productIds[sorted.byPrice[i]]);
+                }
+                return ids;
+            }
+            boolean price = "price_asc".equals(orderBy);
+            int[] docs = price ? sorted.byPrice : sorted.byTime;
+            int start = after != null ? countBefore(sorted, after, price, true) : Math.max(offset, 0);
+            for (int i = start; i < sorted.size && ids.size() < limit; i++) {
+                ids.add(productIds[docs[i]]);
+            }
+            return ids;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 有序数组中排在游标之前的文档数，inclusive 时包括与游标相同的文档
+    private static int countBefore(SortedDocs sorted, PageCursor after, boolean price, boolean inclusive) {
+        int[] docs = price ? sorted.byPrice : sorted.byTime;
+        BigDecimal afterPrice = price ? after.getPrice() : null;
+        Timestamp afterTime = price ? null : after.getTimestamp();
+        int low = 0;
+        int high = sorted.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int doc = docs[mid];
+            int c = price ? prices[doc].compareTo(afterPrice) : afterTime.compareTo(createdAts[doc]);
+            if (c == 0) {
+                c = price ? Long.compare(productIds[doc], after.getId()) : Long.compare(after.getId(), productIds[doc]);
+            }
+            if (c < 0 || (inclusive && c == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int comparePrice(int a, int b) {
+        int c = prices[a].compareTo(prices[b]);
+        return c != 0 ? c : Long.compare(productIds[a], productIds[b]);
+    }
+
+    private static int compareTime(int a, int b) {
+        int c = createdAts[b].compareTo(createdAts[a]);
+        return c != 0 ? c : Long.compare(productIds[b], productIds[a]);
+    }
+
+    // 匹配关键词的存活文档；没有关键词时为全部存活文档
+    private static BitSet matches(List<String> parts) {
+        if (parts.isEmpty()) {
+            return (BitSet) LIVE.clone();
+        }
+        BitSet result = new BitSet(docCount);
+        for (int doc : candidates(parts)) {
+            if (LIVE.get(doc) && score(doc, parts) > 0) {
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    private static List<int[]> sorted(BitSet docs, List<String> parts, String orderBy) {
+        List<int[]> hits = new ArrayList<>(docs.cardinality());
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            hits.add(new int[]{doc, score(doc, parts)});
+        }
+        hits.sort(comparator(orderBy));
+        return hits;
+    }
+
+    private static BitSet bits(BitSet bits) {
+        return bits != null ? bits : new BitSet();
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        if (b == null) {
+            return 0;
+        }
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private static int priceBucket(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price.compareTo(PRICE_BOUNDS[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static BigDecimal[] priceBounds(String config) {
+        List<BigDecimal> bounds = new ArrayList<>();
+        for (String bound : config.split(",")) {
+            if (!bound.trim().isEmpty()) {
+                bounds.add(new BigDecimal(bound.trim()));
+            }
+        }
+        bounds.sort(null);
+        return bounds.toArray(new BigDecimal[0]);
+    }
+
+    public static Map<String, Object> getStats() {
+        LOCK.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("loaded", loaded);
+            stats.put("documents", LIVE.cardinality());
+            stats.put("deleted", docCount - LIVE.cardinality());
+            stats.put("terms", POSTINGS.size());
+            SortedDocs onSale = SORTED.get(ALL_CATEGORIES);
+            stats.put("onSale", onSale != null ? onSale.size : 0);
+            stats.put("queries", QUERIES.sum());
+            stats.put("rebuilds", REBUILDS.sum());
+            stats.put("refreshes", REFRESHES.sum());
+            stats.put("refreshMillis", REFRESH_MILLIS);
+            return stats;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // 关键词按空白切分并转小写，每部分都必须出现在名称或描述中
+    static List<String> parts(String keyword) {
+        List<String> parts = new ArrayList<>();
+        if (keyword != null) {
+            for (String part : keyword.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+        }
+        return parts;
+    }
+
+    // 文本中所有字母/数字连续段的单字和两字 gram
+    static Set<Integer> grams(String text) {
+        Set<Integer> grams = new HashSet<>();
+        char previous = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                previous = 0;
+                continue;
+            }
+            grams.add((int) c);
+            if (previous != 0) {
+                grams.add(previous << 16 | c);
+            }
+            previous = c;
+        }
+        return grams;
+    }
+
+    // 候选文档：各 gram 倒排表的交集，从最短的表开始
+    private static int[] candidates(List<String> parts) {
+        Set<Integer> grams = new HashSet<>();
+        for (String part : parts) {
+            grams.addAll(queryGrams(part));
+        }
+        if (grams.isEmpty()) {
+            // 关键词全部是标点等未索引字符，只能逐个确认
+            int[] all = new int[docCount];
+            for (int i = 0; i < docCount; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        List<IntList> lists = new ArrayList<>(grams.size());
+        for (Integer gram : grams) {
+            IntList list = POSTINGS.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            IntList list = lists.get(i);
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < size; j++) {
+                int found = Arrays.binarySearch(list.values, from, list.size, result[j]);
+                if (found >= 0) {
+                    result[kept++] = result[j];
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // 查询只用两字 gram（单字段落用单字），比索引时更少的 gram 即可保证召回
+    private static Set<Integer> queryGrams(String part) {
+        Set<Integer> grams = new HashSet<>();
+        char previous = 0;
+        boolean single = true;
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                if (previous != 0 && single) {
+                    grams.add((int) previous);
+                }
+                previous = 0;
+                single = true;
+                continue;
+            }
+            if (previous != 0) {
+                grams.add(previous << 16 | c);
+                single = false;
+            }
+            previous = c;
+        }
+        if (previous != 0 && single) {
+            grams.add((int) previous);
+        }
+        return grams;
+    }
+
+    // 逐个确认子串包含并计算相关度，有任一部分不包含时返回 0
+    private static int score(int doc, List<String> parts) {
+        int score = 0;
+        for (String part : parts) {
+            int partScore = 0;
+            if (names[doc].contains(part)) {
+                partScore += NAME_SCORE;
+                if (names[doc].startsWith(part)) {
+                    partScore += NAME_PREFIX_SCORE;
+                }
+            }
+            if (descriptions[doc].contains(part)) {
+                partScore += DESCRIPTION_SCORE;
+            }
+            if (partScore == 0) {
+                return 0;
+            }
+            score += partScore;
+        }
+        // 没有关键词时全部匹配
+        return parts.isEmpty() ? 1 : score;
+    }
+
+    // 排序与 SQL 一致，同值按 id 排序；相关度相同的按 created_at DESC, id DESC
+    private static Comparator<int[]> comparator(String orderBy) {
+        Comparator<int[]> byTimeDesc = Comparator.<int[], Timestamp>comparing(hit -> createdAts[hit[0]])
+                .thenComparingLong(hit -> productIds[hit[0]])
+                .reversed();
+        if ("price_asc".equals(orderBy)) {
+            return Comparator.<int[], BigDecimal>comparing(hit -> prices[hit[0]])
+                    .thenComparingLong(hit -> productIds[hit[0]]);
+        }
+        if ("price_desc".equals(orderBy)) {
+            return Comparator.<int[], BigDecimal>comparing(hit -> prices[hit[0]])
+                    .thenComparingLong(hit -> productIds[hit[0]])
+                    .reversed();
+        }
+        if ("create_time_desc".equals(orderBy)) {
+            return byTimeDesc;
+        }
+        return Comparator.<int[]>comparingInt(hit -> -hit[1]).thenComparing(byTimeDesc);
+    }
+
+    private static boolean isAfter(int doc, PageCursor after, String orderBy) {
+        long id = productIds[doc];
+        if ("price_asc".equals(orderBy)) {
+            int c = prices[doc].compareTo(after.getPrice());
+            return c > 0 || (c == 0 && id > after.getId());
+        }
+        if ("price_desc".equals(orderBy)) {
+            int c = prices[doc].compareTo(after.getPrice());
+            return c < 0 || (c == 0 && id < after.getId());
+        }
+        int c = createdAts[doc].compareTo(after.getTimestamp());
+        return c < 0 || (c == 0 && id < after.getId());
+    }
+
+    private static void add(Product product) {
+        int doc = docCount++;
+        if (doc == productIds.length) {
+            int capacity = Math.max(16, doc * 2);
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        productIds[doc] = product.getId();
+        categoryIds[doc] = product.getCategoryId() != null ? product.getCategoryId() : 0;
+        statuses[doc] = product.getStatus() != null ? product.getStatus() : 0;
+        prices[doc] = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        // 保留 Timestamp 的纳秒，与游标比较时和 SQL 一致
+        Date createdAt = product.getCreatedAt();
+        createdAts[doc] = createdAt instanceof Timestamp ? (Timestamp) createdAt
+                : new Timestamp(createdAt != null ? createdAt.getTime() : 0);
+        names[doc] = product.getName() != null ? product.getName().toLowerCase(Locale.ROOT) : "";
+        descriptions[doc] = product.getDescription() != null ? product.getDescription().toLowerCase(Locale.ROOT) : "";
+        LIVE.set(doc);
+        DOC_BY_PRODUCT.put(product.getId(), doc);
+        CATEGORY_BITS.computeIfAbsent(categoryIds[doc], key -> new BitSet()).set(doc);
+        STATUS_BITS.computeIfAbsent(statuses[doc], key -> new BitSet()).set(doc);
+        PRICE_BITS[priceBucket(prices[doc])].set(doc);
+        if (statuses[doc] == ON_SALE) {
+            SORTED.computeIfAbsent(ALL_CATEGORIES, key -> new SortedDocs()).insert(doc);
+            SORTED.computeIfAbsent(categoryIds[doc], key -> new SortedDocs()).insert(doc);
+        }
+
+        Set<Integer> grams = grams(names[doc]);
+        grams.addAll(grams(descriptions[doc]));
+        for (Integer gram : grams) {
+            POSTINGS.computeIfAbsent(gram, key -> new IntList()).add(doc);
+        }
+    }
+
+    private static void removeDoc(Long productId) {
+        Integer doc = DOC_BY_PRODUCT.remove(productId);
+        if (doc != null) {
+            LIVE.clear(doc);
+            CATEGORY_BITS.get(categoryIds[doc]).clear(doc);
+            STATUS_BITS.get(statuses[doc]).clear(doc);
+            PRICE_BITS[priceBucket(prices[doc])].clear(doc);
+            if (statuses[doc] == ON_SALE) {
+                SORTED.get(ALL_CATEGORIES).remove(doc);
+                SORTED.get(categoryIds[doc]).remove(doc);
+            }
+            names[doc] = null;
+            descriptions[doc] = null;
+        }
+    }
+
+    // 已删除文档超过一半时按存活文档重建，回收倒排表空间
+    private static void compactIfNeeded() {
+        int live = LIVE.cardinality();
+        if (docCount < 1024 || docCount - live <= live) {
+            return;
+        }
+        List<Product> products = new ArrayList<>(live);
+        for (int doc = LIVE.nextSetBit(0); doc >= 0; doc = LIVE.nextSetBit(doc + 1)) {
+            Product product = new Product();
+            product.setId(productIds[doc]);
+            product.setCategoryId(categoryIds[doc]);
+            product.setStatus(statuses[doc]);
+            product.setPrice(prices[doc]);
+            product.setCreatedAt(createdAts[doc]);
+            product.setName(names[doc]);
+            product.setDescription(descriptions[doc]);
+            products.add(product);
+        }
+        reset();
+        for (Product product : products) {
+            add(product);
+        }
+        REBUILDS.increment();
+    }
+
+    private static void reset() {
+        docCount = 0;
+        productIds = new long[0];
+        categoryIds = new long[0];
+        statuses = new int[0];
+        prices = new BigDecimal[0];
+        createdAts = new Timestamp[0];
+        names = new String[0];
+        descriptions = new String[0];
+        LIVE.clear();
+        DOC_BY_PRODUCT.clear();
+        POSTINGS.clear();
+        CATEGORY_BITS.clear();
+        STATUS_BITS.clear();
+        SORTED.clear();
+        for (int i = 0; i < PRICE_BITS.length; i++) {
+            PRICE_BITS[i] = new BitSet();
+        }
+    }
+}
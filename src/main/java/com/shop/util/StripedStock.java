@@ -0,0 +1,71 @@
+package com.shop.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 分段库存计数器：库存分散到多个槽位，不同线程从不同槽位 CAS 扣减，避免单个计数器上的争用
+public class StripedStock {
+    // 每个槽位占 16 个 long（128 字节），避免相邻槽位落在同一缓存行
+    private static final int PADDING = 16;
+
+    private final int stripes;
+    private final AtomicLongArray slots;
+
+    public StripedStock(long stock, int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.slots = new AtomicLongArray(this.stripes * PADDING);
+        for (int i = 0; i < this.stripes; i++) {
+            long share = stock / this.stripes + (i < stock % this.stripes ? 1 : 0);
+            slots.set(i * PADDING, share);
+        }
+    }
+
+    // 扣减成功返回 true；库存不足时已扣的部分全部退回
+    public boolean tryAcquire(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+
+        // 先尝试在单个槽位内一次扣完
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            long current;
+            while ((current = slots.get(index)) >= quantity) {
+                if (slots.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        // 库存分散在多个槽位时逐个凑齐
+        long remaining = quantity;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            long current;
+            while ((current = slots.get(index)) > 0) {
+                long take = Math.min(current, remaining);
+                if (slots.compareAndSet(index, current, current - take)) {
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+        if (remaining > 0) {
+            release(quantity - remaining);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long quantity) {
+        if (quantity > 0) {
+            slots.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+        }
+    }
+
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += slots.get(i * PADDING);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,101 @@
+package com.shop.util;
+
+import com.shop.model.User;
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 已验证 token 缓存：以 token 的 SHA-256 为键缓存解析出的用户，直到 token 过期
+// 命中时只需一次哈希和查表，不再解析 JSON 和校验签名；内存中不保存 token 原文
+public class TokenCache {
+    private static final int MAX_ENTRIES = ConfigUtil.getInt("auth.tokenCacheSize", 10000);
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 与 JwtUtil.verifyToken 语义相同：无效或过期返回 null
+    public static User verify(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        Entry entry = CACHE.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                HITS.increment();
+                return copy(entry.user);
+            }
+            CACHE.remove(key, entry);
+        }
+        MISSES.increment();
+
+        User user;
+        long expiresAt;
+        try {
+            Claims claims = JwtUtil.parseToken(token);
+            user = JwtUtil.toUser(claims);
+            expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : now;
+        } catch (Exception e) {
+            return null;
+        }
+
+        // 无过期时间的 token 不缓存
+        if (expiresAt > now) {
+            if (CACHE.size() >= MAX_ENTRIES) {
+                CACHE.values().removeIf(e -> e.expiresAt <= now);
+                if (CACHE.size() >= MAX_ENTRIES) {
+                    CACHE.clear();
+                }
+            }
+            CACHE.put(key, new Entry(user, expiresAt));
+        }
+        return copy(user);
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", CACHE.size());
+        stats.put("maxEntries", MAX_ENTRIES);
+        stats.put("hits", HITS.sum());
+        stats.put("misses", MISSES.sum());
+        return stats;
+    }
+
+    private static String hash(String token) {
+        byte[] digest = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    // 请求之间不共享同一个 User 实例
+    private static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setUsername(source.getUsername());
+        user.setRole(source.getRole());
+        return user;
+    }
+}
@@ -0,0 +1,18 @@
+-- 热点查询的复合索引
+-- 由 SchemaMigrator 在应用启动时执行一次，执行记录见 schema_migrations 表
+-- InnoDB 二级索引隐含主键列，(…, created_at) 即可满足 ORDER BY created_at DESC, id DESC，反向扫描不需要 filesort
+
+-- 用户订单列表及总数：WHERE user_id = ? ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_orders_user_created ON orders (user_id, created_at);
+
+-- 后台按状态筛选订单：WHERE status = ? ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_orders_status_created ON orders (status, created_at);
+
+-- 支付回调、订单详情按订单号查询：WHERE order_no = ?
+CREATE INDEX idx_orders_order_no ON orders (order_no);
+
+-- 前台分类浏览及总数：WHERE category_id = ? AND status = 1 ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_products_category_status_created ON products (category_id, status, created_at);
+
+-- 加入购物车时查找已有条目：WHERE user_id = ? AND product_id = ?
+CREATE INDEX idx_cart_items_user_product ON cart_items (user_id, product_id);
@@ -0,0 +1,16 @@
+-- 购物车同一用户同一商品只保留一行，加入购物车改为一条 INSERT ... ON DUPLICATE KEY UPDATE
+-- 由 SchemaMigrator 在应用启动时执行一次，执行记录见 schema_migrations 表
+
+-- 合并已有的重复行：数量累加到ID最小的一行，其余删除
+DROP TABLE IF EXISTS cart_items_merged;
+CREATE TABLE cart_items_merged AS
+    SELECT MIN(id) AS id, SUM(quantity) AS quantity FROM cart_items GROUP BY user_id, product_id HAVING COUNT(*) > 1;
+UPDATE cart_items SET quantity = (SELECT m.quantity FROM cart_items_merged m WHERE m.id = cart_items.id)
+    WHERE id IN (SELECT id FROM cart_items_merged);
+DELETE FROM cart_items
+    WHERE id NOT IN (SELECT keep_id FROM (SELECT MIN(id) AS keep_id FROM cart_items GROUP BY user_id, product_id) k);
+DROP TABLE cart_items_merged;
+
+-- 唯一索引替代 V1 的普通索引，查找已有条目同样可以使用
+DROP INDEX idx_cart_items_user_product ON cart_items;
+CREATE UNIQUE INDEX uk_cart_items_user_product ON cart_items (user_id, product_id);
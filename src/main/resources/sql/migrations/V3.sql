@@ -0,0 +1,10 @@
+-- 秒杀库存扣减流水：订单提交时写入，后台批量合并到 products.stock 后删除
+-- 由 SchemaMigrator 在应用启动时执行一次，执行记录见 schema_migrations 表
+-- 原先是需要手动执行的 sql/stock_reservations.sql，已手动建表的库上 IF NOT EXISTS 不做任何修改
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    order_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;